@@ -0,0 +1,81 @@
+package org.mvnsearch.boot.npm.export.rsocket.benchmark;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.mvnsearch.boot.npm.export.rsocket.NpmPackageArchive;
+import org.mvnsearch.boot.npm.export.rsocket.NpmPackageBuilder;
+import org.mvnsearch.boot.npm.export.rsocket.generator.RSocketServiceJavaScriptStubGenerator;
+import org.mvnsearch.boot.npm.export.rsocket.generator.RSocketServiceStubModel;
+import org.mvnsearch.boot.npm.export.rsocket.generator.TypeScriptDeclarationGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * npm package generation benchmark for every stage: stub model reflection, JavaScript stub, TypeScript declaration,
+ * tar + gzip, and the full package. Run with "-prof gc" to report allocation rate.
+ *
+ * @author linux_china
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NpmPackageBenchmark {
+    @Param({"10", "100", "1000"})
+    private int methodCount;
+    @Param({"1", "8"})
+    private int dtoDepth;
+    private Class<?> serviceClass;
+    private RSocketServiceStubModel stubModel;
+    private NpmPackageBuilder packageBuilder;
+    private byte[] jsCode;
+    private byte[] tsCode;
+
+    @Setup
+    public void setUp() {
+        serviceClass = SyntheticServices.createServiceClass(methodCount, dtoDepth);
+        stubModel = RSocketServiceStubModel.create(serviceClass);
+        packageBuilder = new NpmPackageBuilder("benchmark");
+        jsCode = new RSocketServiceJavaScriptStubGenerator(stubModel).generate(SyntheticServices.SERVICE_NAME).getBytes(StandardCharsets.UTF_8);
+        tsCode = new TypeScriptDeclarationGenerator(stubModel).generate().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public RSocketServiceStubModel stubModel() {
+        return RSocketServiceStubModel.create(serviceClass);
+    }
+
+    @Benchmark
+    public String javaScriptStub() {
+        return new RSocketServiceJavaScriptStubGenerator(stubModel).generate(SyntheticServices.SERVICE_NAME);
+    }
+
+    @Benchmark
+    public String typeScriptDeclaration() {
+        return new TypeScriptDeclarationGenerator(stubModel).generate();
+    }
+
+    @Benchmark
+    public byte[] tarGz() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        GzipCompressorOutputStream gzOut = new GzipCompressorOutputStream(bos);
+        TarArchiveOutputStream tgzOut = new TarArchiveOutputStream(gzOut);
+        packageBuilder.addBinaryToTarGz(tgzOut, "SyntheticService/index.js", jsCode);
+        packageBuilder.addBinaryToTarGz(tgzOut, "SyntheticService/index.d.ts", tsCode);
+        tgzOut.finish();
+        tgzOut.close();
+        gzOut.close();
+        return bos.toByteArray();
+    }
+
+    @Benchmark
+    public NpmPackageArchive fullPackage() throws IOException {
+        return packageBuilder.build("@benchmark/SyntheticService", "1.0.0", SyntheticServices.SERVICE_NAME, stubModel);
+    }
+}
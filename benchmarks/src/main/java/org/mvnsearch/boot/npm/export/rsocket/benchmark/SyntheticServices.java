@@ -0,0 +1,94 @@
+package org.mvnsearch.boot.npm.export.rsocket.benchmark;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.implementation.FixedValue;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * synthetic RSocket services with configurable method count and DTO graph depth
+ *
+ * @author linux_china
+ */
+public class SyntheticServices {
+    public static final String SERVICE_NAME = "org.mvnsearch.benchmark.SyntheticService";
+    private static final String PACKAGE_NAME = "org.mvnsearch.boot.npm.export.rsocket.benchmark.synthetic.";
+
+    /**
+     * create DTO chain: Dto0 -&gt; Dto1 -&gt; ... -&gt; Dto(depth-1), and every DTO has some simple fields
+     *
+     * @param name  unique name for generated classes
+     * @param depth DTO graph depth
+     * @return root DTO class
+     */
+    public static Class<?> createDtoClass(String name, int depth) {
+        Class<?> child = null;
+        for (int level = depth - 1; level >= 0; level--) {
+            DynamicType.Builder<Object> builder = new ByteBuddy()
+                    .subclass(Object.class)
+                    .name(PACKAGE_NAME + name + "Dto" + level)
+                    .defineField("id", Long.class, Visibility.PRIVATE)
+                    .defineField("nick", String.class, Visibility.PRIVATE)
+                    .defineField("email", String.class, Visibility.PRIVATE)
+                    .defineField("status", Integer.class, Visibility.PRIVATE)
+                    .defineField("enabled", Boolean.class, Visibility.PRIVATE)
+                    .defineField("createdAt", LocalDateTime.class, Visibility.PRIVATE)
+                    .defineField("tags", List.class, Visibility.PRIVATE)
+                    .defineField("attributes", Map.class, Visibility.PRIVATE);
+            if (child != null) {
+                builder = builder.defineField("child", child, Visibility.PRIVATE);
+            }
+            ClassLoader classLoader = child == null ? SyntheticServices.class.getClassLoader() : child.getClassLoader();
+            child = builder.make().load(classLoader, ClassLoadingStrategy.Default.WRAPPER).getLoaded();
+        }
+        return child;
+    }
+
+    /**
+     * create @MessageMapping service class with request/response, request/stream and fire-and-forget methods
+     *
+     * @param methodCount method count
+     * @param dtoDepth    DTO graph depth
+     * @return service class
+     */
+    public static Class<?> createServiceClass(int methodCount, int dtoDepth) {
+        String name = "Synthetic" + methodCount + "x" + dtoDepth;
+        Class<?> dtoClass = createDtoClass(name, dtoDepth);
+        DynamicType.Builder<Object> builder = new ByteBuddy()
+                .subclass(Object.class)
+                .name(PACKAGE_NAME + name + "ServiceImpl")
+                .annotateType(messageMapping(SERVICE_NAME));
+        for (int i = 0; i < methodCount; i++) {
+            String methodName = "method" + i;
+            TypeDescription.Generic returnType;
+            if (i % 4 == 1) {
+                returnType = TypeDescription.Generic.Builder.parameterizedType(Flux.class, dtoClass).build();
+            } else if (i % 4 == 3) {
+                returnType = TypeDescription.Generic.Builder.parameterizedType(Mono.class, Void.class).build();
+            } else {
+                returnType = TypeDescription.Generic.Builder.parameterizedType(Mono.class, dtoClass).build();
+            }
+            builder = builder.defineMethod(methodName, returnType, Visibility.PUBLIC)
+                    .withParameter(i % 2 == 0 ? Integer.class : dtoClass, "param" + i)
+                    .intercept(FixedValue.nullValue())
+                    .annotateMethod(messageMapping(methodName));
+        }
+        return builder.make().load(dtoClass.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER).getLoaded();
+    }
+
+    private static AnnotationDescription messageMapping(String value) {
+        return AnnotationDescription.Builder.ofType(MessageMapping.class)
+                .defineArray("value", value)
+                .build();
+    }
+}
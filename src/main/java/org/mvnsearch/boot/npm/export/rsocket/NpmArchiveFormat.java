@@ -0,0 +1,33 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+/**
+ * npm package archive format
+ *
+ * @author linux_china
+ */
+public enum NpmArchiveFormat {
+    /**
+     * gzipped tarball, default for npm
+     */
+    TGZ("application/tar+gzip", ".tgz"),
+    /**
+     * uncompressed tarball for mirrors where CPU matters more than bytes
+     */
+    TAR("application/x-tar", ".tar");
+
+    private final String mediaType;
+    private final String fileExtension;
+
+    NpmArchiveFormat(String mediaType, String fileExtension) {
+        this.mediaType = mediaType;
+        this.fileExtension = fileExtension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+}
@@ -0,0 +1,138 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import io.rsocket.frame.FrameType;
+import org.jetbrains.annotations.Nullable;
+import org.mvnsearch.boot.npm.export.rsocket.generator.JsRSocketStubMethod;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.handler.DestinationPatternsMessageCondition;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.invocation.reactive.HandlerMethodReturnValueHandler;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * unpack fire-and-forget batch from generated JavaScript stub, and dispatch every item to the route of target method by RSocket message handler,
+ * so argument resolvers, validation and AOP proxies are same as single call.
+ * Only fire-and-forget methods with {@link NpmFireAndForgetBatch} can be invoked.
+ *
+ * @author linux_china
+ */
+@Controller
+public class NpmBatchController {
+    private static final Logger log = LoggerFactory.getLogger(NpmBatchController.class);
+    private final RSocketExportedServiceRegistry serviceRegistry;
+    /**
+     * message handler which registers this controller too, so it is resolved on first batch
+     */
+    private final ObjectProvider<RSocketMessageHandler> messageHandler;
+
+    public NpmBatchController(RSocketExportedServiceRegistry serviceRegistry, ObjectProvider<RSocketMessageHandler> messageHandler) {
+        this.serviceRegistry = serviceRegistry;
+        this.messageHandler = messageHandler;
+    }
+
+    @MessageMapping(NpmFireAndForgetBatch.ROUTE)
+    public Mono<Void> batch(NpmBatchRequest batchRequest, MessageHeaders headers) {
+        String route = batchRequest.getRoute();
+        RSocketExportedService exportedService = route == null ? null : findService(route);
+        Method method = exportedService == null ? null : findBatchMethod(exportedService, route.substring(route.lastIndexOf('.') + 1));
+        if (method == null) {
+            log.warn("Batch route not found or not allowed: " + route);
+            return Mono.empty();
+        }
+        RSocketMessageHandler handler = messageHandler.getObject();
+        return Flux.fromIterable(batchRequest.getItems())
+                .concatMap(item -> Mono.defer(() -> handler.handleMessage(itemMessage(handler, route, item, headers)))
+                        .onErrorResume(e -> {
+                            log.error("Failed to invoke " + route + " in batch", e);
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    /**
+     * fire-and-forget message for batch item, with same headers as batch message except route
+     *
+     * @param handler RSocket message handler
+     * @param route   target route
+     * @param item    batch item
+     * @param headers headers of batch message
+     * @return item message
+     */
+    private static Message<DataBuffer> itemMessage(RSocketMessageHandler handler, String route, @Nullable Object item, MessageHeaders headers) {
+        MessageHeaderAccessor accessor = new MessageHeaderAccessor();
+        accessor.copyHeaders(headers);
+        accessor.setHeader(DestinationPatternsMessageCondition.LOOKUP_DESTINATION_HEADER, handler.getRouteMatcher().parseRoute(route));
+        RSocketStrategies strategies = handler.getRSocketStrategies();
+        DataBufferFactory bufferFactory = (DataBufferFactory) headers.getOrDefault(HandlerMethodReturnValueHandler.DATA_BUFFER_FACTORY_HEADER,
+                strategies.dataBufferFactory());
+        MimeType mimeType = accessor.getContentType() != null ? accessor.getContentType() : handler.getDefaultDataMimeType();
+        DataBuffer data = item == null ? bufferFactory.allocateBuffer(0) : encode(strategies, bufferFactory, item, mimeType);
+        return MessageBuilder.createMessage(data, accessor.getMessageHeaders());
+    }
+
+    private static <T> DataBuffer encode(RSocketStrategies strategies, DataBufferFactory bufferFactory, T item, @Nullable MimeType mimeType) {
+        ResolvableType type = ResolvableType.forInstance(item);
+        return strategies.<T>encoder(type, mimeType).encodeValue(item, bufferFactory, type, mimeType, null);
+    }
+
+    /**
+     * find exported service for route
+     *
+     * @param route service name + "." + method name
+     * @return exported service
+     */
+    @Nullable
+    public RSocketExportedService findService(String route) {
+        int index = route.lastIndexOf('.');
+        if (index <= 0) {
+            return null;
+        }
+        String serviceName = route.substring(0, index);
+        RSocketExportedService exportedService = serviceRegistry.findService(serviceName.substring(serviceName.lastIndexOf('.') + 1));
+        if (exportedService == null || !exportedService.getServiceName().equals(serviceName)) {
+            return null;
+        }
+        return exportedService;
+    }
+
+    /**
+     * find fire-and-forget method with @NpmFireAndForgetBatch
+     *
+     * @param exportedService exported service
+     * @param methodName      method name
+     * @return method
+     */
+    @Nullable
+    public Method findBatchMethod(RSocketExportedService exportedService, String methodName) {
+        List<Method> requestMethods = exportedService.getStubModel().getRequestMethods();
+        List<JsRSocketStubMethod> stubMethods = exportedService.getStubModel().getStubMethods();
+        for (int i = 0; i < requestMethods.size(); i++) {
+            Method method = requestMethods.get(i);
+            if (method.getName().equals(methodName)
+                    && stubMethods.get(i).getFrameType() == FrameType.REQUEST_FNF
+                    && method.getParameterCount() <= 1
+                    && AnnotationUtils.findAnnotation(method, NpmFireAndForgetBatch.class) != null) {
+                return method;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,33 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * batch of fire-and-forget calls: route of target method and its params
+ *
+ * @author linux_china
+ */
+public class NpmBatchRequest {
+    /**
+     * target route: service name + "." + method name
+     */
+    private String route;
+    private List<Object> items = new ArrayList<>();
+
+    public String getRoute() {
+        return route;
+    }
+
+    public void setRoute(String route) {
+        this.route = route;
+    }
+
+    public List<Object> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Object> items) {
+        this.items = items;
+    }
+}
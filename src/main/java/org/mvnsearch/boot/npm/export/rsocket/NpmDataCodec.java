@@ -0,0 +1,28 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+/**
+ * data codec for generated JavaScript stub, and it should match RSocket data MIME type of the server
+ *
+ * @author linux_china
+ */
+public enum NpmDataCodec {
+    /**
+     * default codec from npm.export.rsocket.codec
+     */
+    DEFAULT(null),
+    JSON("application/json"),
+    /**
+     * CBOR, jackson-dataformat-cbor is required on server side and "cbor" npm package is used by JavaScript stub
+     */
+    CBOR("application/cbor");
+
+    private final String mimeType;
+
+    NpmDataCodec(String mimeType) {
+        this.mimeType = mimeType;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+}
@@ -0,0 +1,13 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+/**
+ * services in one bundle use different data codecs
+ *
+ * @author linux_china
+ */
+public class NpmDataCodecConflictException extends IllegalArgumentException {
+
+    public NpmDataCodecConflictException(String message) {
+        super(message);
+    }
+}
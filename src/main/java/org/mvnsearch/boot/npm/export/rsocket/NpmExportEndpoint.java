@@ -0,0 +1,186 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import org.jetbrains.annotations.Nullable;
+import org.mvnsearch.boot.npm.export.rsocket.generator.JsRSocketStubMethod;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * actuator endpoint for exported RSocket services catalog and generated npm packages
+ *
+ * @author linux_china
+ */
+@Endpoint(id = "npmexport")
+public class NpmExportEndpoint {
+    private final RSocketExportedServiceRegistry serviceRegistry;
+    private final NpmPackageCache packageCache;
+    private final String appName;
+
+    public NpmExportEndpoint(RSocketExportedServiceRegistry serviceRegistry, NpmPackageCache packageCache, String appName) {
+        this.serviceRegistry = serviceRegistry;
+        this.packageCache = packageCache;
+        this.appName = appName;
+    }
+
+    @ReadOperation
+    public List<ServiceDescriptor> services() {
+        List<NpmPackageArchive> archives = packageCache.getArchives();
+        return serviceRegistry.getServices().stream()
+                .map(service -> new ServiceDescriptor(service, service.getPackageName(appName), archives))
+                .collect(Collectors.toList());
+    }
+
+    @ReadOperation
+    @Nullable
+    public ServiceDescriptor service(@Selector String simpleName) {
+        RSocketExportedService service = serviceRegistry.findService(simpleName);
+        return service == null ? null : new ServiceDescriptor(service, service.getPackageName(appName), packageCache.getArchives());
+    }
+
+    public static class ServiceDescriptor {
+        private final String serviceName;
+        private final String simpleName;
+        private final String serviceClass;
+        @Nullable
+        private final String npmPackage;
+        private final String packageName;
+        private final List<MethodDescriptor> methods;
+        private final List<PackageDescriptor> packages;
+
+        ServiceDescriptor(RSocketExportedService service, String packageName, List<NpmPackageArchive> archives) {
+            this.serviceName = service.getServiceName();
+            this.simpleName = service.getSimpleName();
+            this.serviceClass = service.getServiceClass().getName();
+            this.npmPackage = service.getNpmPackage() == null ? null : service.getNpmPackage().value();
+            this.packageName = packageName;
+            this.methods = service.getStubMethods().stream()
+                    .map(stubMethod -> new MethodDescriptor(service.getServiceName(), stubMethod))
+                    .collect(Collectors.toList());
+            this.packages = archives.stream()
+                    .filter(archive -> archive.getPackageName().equals(packageName))
+                    .map(PackageDescriptor::new)
+                    .collect(Collectors.toList());
+        }
+
+        public String getServiceName() {
+            return serviceName;
+        }
+
+        public String getSimpleName() {
+            return simpleName;
+        }
+
+        public String getServiceClass() {
+            return serviceClass;
+        }
+
+        @Nullable
+        public String getNpmPackage() {
+            return npmPackage;
+        }
+
+        /**
+         * canonical npm package name, and cached archives are named with it
+         *
+         * @return npm package name
+         */
+        public String getPackageName() {
+            return packageName;
+        }
+
+        public List<MethodDescriptor> getMethods() {
+            return methods;
+        }
+
+        public List<PackageDescriptor> getPackages() {
+            return packages;
+        }
+    }
+
+    public static class MethodDescriptor {
+        private final String name;
+        private final String route;
+        private final String frameType;
+        private final List<String> params;
+        @Nullable
+        private final String returnType;
+        private final boolean deprecated;
+
+        MethodDescriptor(String serviceName, JsRSocketStubMethod stubMethod) {
+            this.name = stubMethod.getName();
+            this.route = serviceName + "." + stubMethod.getName();
+            this.frameType = stubMethod.getFrameType().name();
+            this.params = stubMethod.getParams().stream()
+                    .map(param -> param.getName() + ": " + param.getType().getName())
+                    .collect(Collectors.toList());
+            this.returnType = stubMethod.getReturnType() == null ? null : stubMethod.getReturnType().getName();
+            this.deprecated = stubMethod.isDeprecated();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getRoute() {
+            return route;
+        }
+
+        public String getFrameType() {
+            return frameType;
+        }
+
+        public List<String> getParams() {
+            return params;
+        }
+
+        @Nullable
+        public String getReturnType() {
+            return returnType;
+        }
+
+        public boolean isDeprecated() {
+            return deprecated;
+        }
+    }
+
+    public static class PackageDescriptor {
+        private final String packageName;
+        private final String version;
+        private final int size;
+        private final String contentHash;
+        private final Instant lastModified;
+
+        PackageDescriptor(NpmPackageArchive archive) {
+            this.packageName = archive.getPackageName();
+            this.version = archive.getVersion();
+            this.size = archive.getSize();
+            this.contentHash = archive.getContentHash();
+            this.lastModified = archive.getLastModified();
+        }
+
+        public String getPackageName() {
+            return packageName;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        public Instant getLastModified() {
+            return lastModified;
+        }
+    }
+}
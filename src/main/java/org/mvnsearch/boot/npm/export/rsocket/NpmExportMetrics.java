@@ -0,0 +1,119 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * npm export metrics: stage timers, cache hit/miss counters and served bytes for every package.
+ * Package tag is canonical package name of exported service, and all bundles share {@link #BUNDLE_PACKAGE_TAG}, so tags are bounded.
+ *
+ * @author linux_china
+ */
+public class NpmExportMetrics {
+    /**
+     * package tag value for all bundles, whose names and services are chosen by clients
+     */
+    public static final String BUNDLE_PACKAGE_TAG = "bundle";
+    public static final String STAGE_TIMER = "npm.export.stage";
+    public static final String CACHE_COUNTER = "npm.export.cache";
+    public static final String SERVED_SUMMARY = "npm.export.served";
+    public static final String NOT_MODIFIED_COUNTER = "npm.export.not.modified";
+    public static final String STAGE_LOOKUP = "lookup";
+    public static final String STAGE_PACKAGE_JSON = "package.json";
+    public static final String STAGE_JAVASCRIPT = "js";
+    public static final String STAGE_TYPESCRIPT = "ts";
+    public static final String STAGE_ARCHIVE = "archive";
+    public static final String STAGE_PREBUILT = "prebuilt";
+    private final MeterRegistry meterRegistry;
+    /**
+     * meters by package tag, registered once and reused by every request and build
+     */
+    private final Map<String, PackageMeters> packageMeters = new ConcurrentHashMap<>();
+
+    public NpmExportMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * metrics without any registry, and all meters are no-op
+     *
+     * @return no-op metrics
+     */
+    public static NpmExportMetrics noop() {
+        return new NpmExportMetrics(new CompositeMeterRegistry());
+    }
+
+    public void recordStage(String packageName, String stage, long startNanos) {
+        packageMeters(packageName).stageTimer(stage).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void cacheHit(String packageName) {
+        packageMeters(packageName).cacheHit.increment();
+    }
+
+    public void cacheMiss(String packageName) {
+        packageMeters(packageName).cacheMiss.increment();
+    }
+
+    public void served(String packageName, long bytes) {
+        packageMeters(packageName).served.record(bytes);
+    }
+
+    public void notModified(String packageName) {
+        packageMeters(packageName).notModified.increment();
+    }
+
+    private PackageMeters packageMeters(String packageName) {
+        return packageMeters.computeIfAbsent(packageName, PackageMeters::new);
+    }
+
+    /**
+     * meters of one package, and stage timers are registered on first use
+     */
+    private class PackageMeters {
+        private final String packageName;
+        private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+        private final Counter cacheHit;
+        private final Counter cacheMiss;
+        private final DistributionSummary served;
+        private final Counter notModified;
+
+        PackageMeters(String packageName) {
+            this.packageName = packageName;
+            this.cacheHit = cacheCounter("hit");
+            this.cacheMiss = cacheCounter("miss");
+            this.served = DistributionSummary.builder(SERVED_SUMMARY)
+                    .description("npm package tarball bytes served")
+                    .baseUnit("bytes")
+                    .tag("package", packageName)
+                    .register(meterRegistry);
+            this.notModified = Counter.builder(NOT_MODIFIED_COUNTER)
+                    .description("npm package requests answered with 304")
+                    .tag("package", packageName)
+                    .register(meterRegistry);
+        }
+
+        Timer stageTimer(String stage) {
+            return stageTimers.computeIfAbsent(stage, key -> Timer.builder(STAGE_TIMER)
+                    .description("npm package generation time for every stage")
+                    .tag("package", packageName)
+                    .tag("stage", stage)
+                    .register(meterRegistry));
+        }
+
+        private Counter cacheCounter(String result) {
+            return Counter.builder(CACHE_COUNTER)
+                    .description("npm package tarball cache lookups")
+                    .tag("package", packageName)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+}
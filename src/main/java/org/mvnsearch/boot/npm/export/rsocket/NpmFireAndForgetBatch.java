@@ -0,0 +1,29 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import java.lang.annotation.*;
+
+/**
+ * batching for fire-and-forget methods in generated JavaScript stub: calls are buffered by size or time,
+ * then sent as one fire-and-forget frame to {@link #ROUTE}, and {@link NpmBatchController} unpacks the batch into this method
+ *
+ * @author linux_china
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface NpmFireAndForgetBatch {
+    /**
+     * route for batch frames
+     */
+    String ROUTE = "npm.export.batch";
+
+    /**
+     * max count of buffered calls, and batch is sent when reached
+     */
+    int maxSize() default 100;
+
+    /**
+     * max delay in milliseconds before buffered calls are sent
+     */
+    long maxDelay() default 1000;
+}
@@ -15,4 +15,9 @@ public @interface NpmPackage {
     String value() default "";
 
     String version() default "";
+
+    /**
+     * data codec for generated stub
+     */
+    NpmDataCodec codec() default NpmDataCodec.DEFAULT;
 }
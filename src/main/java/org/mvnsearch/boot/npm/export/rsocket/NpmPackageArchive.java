@@ -0,0 +1,214 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import org.jetbrains.annotations.Nullable;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * generated npm package archive: tarball content with package name and version, and content is in heap or in a file of {@link NpmPackageStore}
+ *
+ * @author linux_china
+ */
+public class NpmPackageArchive {
+    private static final int CHUNK_SIZE = 8192;
+    private final String packageName;
+    private final String version;
+    private final NpmArchiveFormat format;
+    @Nullable
+    private final byte[] content;
+    /**
+     * tarball file for archive in {@link NpmPackageStore}, and content is not kept in heap
+     */
+    @Nullable
+    private final Path file;
+    private final int size;
+    /**
+     * sha-256 hex of content, used as strong ETag
+     */
+    private final String contentHash;
+    /**
+     * Subresource Integrity of content for dist.integrity in packument, such as sha512-xxx
+     */
+    private final String integrity;
+    /**
+     * sha-1 hex of content for dist.shasum in packument
+     */
+    private final String shasum;
+    private final Instant lastModified;
+    /**
+     * package.json in tarball, used as version manifest in packument
+     */
+    @Nullable
+    private final Map<String, Object> manifest;
+
+    public NpmPackageArchive(String packageName, String version, byte[] content) {
+        this(packageName, version, content, Instant.now());
+    }
+
+    public NpmPackageArchive(String packageName, String version, byte[] content, Instant lastModified) {
+        this(packageName, version, NpmArchiveFormat.TGZ, content, lastModified);
+    }
+
+    public NpmPackageArchive(String packageName, String version, NpmArchiveFormat format, byte[] content, Instant lastModified) {
+        this(packageName, version, format, content, null, lastModified);
+    }
+
+    public NpmPackageArchive(String packageName, String version, NpmArchiveFormat format, byte[] content,
+                             @Nullable Map<String, Object> manifest, Instant lastModified) {
+        this(packageName, version, format, content, null, content.length, hex(digest("SHA-256", content)),
+                "sha512-" + Base64.getEncoder().encodeToString(digest("SHA-512", content)), hex(digest("SHA-1", content)), manifest, lastModified);
+    }
+
+    private NpmPackageArchive(String packageName, String version, NpmArchiveFormat format, @Nullable byte[] content, @Nullable Path file,
+                              int size, String contentHash, String integrity, String shasum, @Nullable Map<String, Object> manifest,
+                              Instant lastModified) {
+        this.packageName = packageName;
+        this.version = version;
+        this.format = format;
+        this.content = content;
+        this.file = file;
+        this.size = size;
+        this.contentHash = contentHash;
+        this.integrity = integrity;
+        this.shasum = shasum;
+        this.manifest = manifest == null ? null : Collections.unmodifiableMap(manifest);
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * archive with content in file, and digests are calculated already
+     *
+     * @param packageName  package name
+     * @param version      version
+     * @param format       archive format
+     * @param file         tarball file
+     * @param size         file size
+     * @param contentHash  sha-256 hex
+     * @param integrity    Subresource Integrity
+     * @param shasum       sha-1 hex
+     * @param manifest     package.json in tarball
+     * @param lastModified last modified
+     * @return file archive
+     */
+    public static NpmPackageArchive ofFile(String packageName, String version, NpmArchiveFormat format, Path file, int size,
+                                           String contentHash, String integrity, String shasum, @Nullable Map<String, Object> manifest,
+                                           Instant lastModified) {
+        return new NpmPackageArchive(packageName, version, format, null, file, size, contentHash, integrity, shasum, manifest, lastModified);
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public NpmArchiveFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * tarball content, and it's read from file for file archive
+     *
+     * @return content
+     */
+    public byte[] getContent() {
+        if (content != null) {
+            return content;
+        }
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * content in heap, or tarball file still exists
+     *
+     * @return available or not
+     */
+    public boolean isAvailable() {
+        return content != null || Files.exists(file);
+    }
+
+    @Nullable
+    public Path getFile() {
+        return file;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public String getIntegrity() {
+        return integrity;
+    }
+
+    public String getShasum() {
+        return shasum;
+    }
+
+    @Nullable
+    public Map<String, Object> getManifest() {
+        return manifest;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * wrap content as read-only data buffer chunks, no copy, and file content is read in chunks
+     *
+     * @param bufferFactory buffer factory
+     * @return data buffer chunks
+     */
+    public Flux<DataBuffer> toDataBuffers(DataBufferFactory bufferFactory) {
+        if (content == null) {
+            return DataBufferUtils.read(file, bufferFactory, CHUNK_SIZE);
+        }
+        byte[] content = this.content;
+        int chunks = (content.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return Flux.range(0, chunks).map(i -> {
+            int offset = i * CHUNK_SIZE;
+            int length = Math.min(CHUNK_SIZE, content.length - offset);
+            return bufferFactory.wrap(ByteBuffer.wrap(content, offset, length).slice().asReadOnlyBuffer());
+        });
+    }
+
+    static byte[] digest(String algorithm, byte[] content) {
+        try {
+            return MessageDigest.getInstance(algorithm).digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,500 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import org.mvnsearch.boot.npm.export.rsocket.generator.JavaScriptMinifier;
+import org.mvnsearch.boot.npm.export.rsocket.generator.ModuleFormat;
+import org.mvnsearch.boot.npm.export.rsocket.generator.PackageJsonGenerator;
+import org.mvnsearch.boot.npm.export.rsocket.generator.RSocketConnectionPoolGenerator;
+import org.mvnsearch.boot.npm.export.rsocket.generator.RSocketServiceJavaScriptStubGenerator;
+import org.mvnsearch.boot.npm.export.rsocket.generator.RSocketServiceStubModel;
+import org.mvnsearch.boot.npm.export.rsocket.generator.TypeScriptDeclarationGenerator;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+
+/**
+ * npm package builder: generate package.json, index.js(CommonJS), index.mjs(ES module) and index.d.ts, then pack them as tarball
+ *
+ * @author linux_china
+ */
+public class NpmPackageBuilder {
+    /**
+     * classpath location for prebuilt npm packages
+     */
+    public static final String PREBUILT_LOCATION = "META-INF/npm/";
+    /**
+     * fixed modification time for tarball entries, same as npm pack, to make tarball content reproducible
+     */
+    private static final Date TAR_ENTRY_MOD_TIME = new Date(499162500000L);
+    /**
+     * application name if spring.application.name absent
+     */
+    public static final String DEFAULT_APP_NAME = "SpringBoot";
+    /**
+     * version in generated files before content hash, replaced with resolved version when packing
+     */
+    private static final String VERSION_PLACEHOLDER = "0.0.0-version-placeholder";
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    /**
+     * classes to generate package besides generator package, and their bytecode is part of build fingerprint
+     */
+    private static final Class<?>[] GENERATOR_CLASSES = {NpmPackageBuilder.class, NpmPackageArchive.class, NpmArchiveFormat.class, NpmDataCodec.class,
+            NpmPackage.class, NpmResponseCache.class, NpmFireAndForgetBatch.class, NpmStreamWindow.class};
+    /**
+     * bytecode of all classes in generator package, read once for build fingerprint
+     */
+    private static volatile byte[] generatorBytecode;
+    private final String appName;
+    /**
+     * default data codec if not declared by @NpmPackage
+     */
+    private NpmDataCodec dataCodec = NpmDataCodec.JSON;
+    private NpmExportMetrics metrics = NpmExportMetrics.noop();
+    /**
+     * gzip compression level, from 1(best speed) to 9(best compression), -1 for deflater default
+     */
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    /**
+     * include connection.js with RSocket connection pool
+     */
+    private boolean connectionPool = false;
+    /**
+     * minify generated JavaScript code
+     */
+    private boolean minify = false;
+
+    public NpmPackageBuilder(String appName) {
+        this.appName = appName;
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+
+    public NpmDataCodec getDataCodec() {
+        return dataCodec;
+    }
+
+    public void setDataCodec(NpmDataCodec dataCodec) {
+        this.dataCodec = dataCodec;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * set gzip compression level
+     *
+     * @param compressionLevel from 1(best speed) to 9(best compression), 0 for no compression, -1 for deflater default
+     * @throws IllegalArgumentException level out of range, and it's rejected before any build
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid gzip compression level: " + compressionLevel + ", and it should be from -1 to 9");
+        }
+        this.compressionLevel = compressionLevel;
+    }
+
+    public boolean isConnectionPool() {
+        return connectionPool;
+    }
+
+    public void setConnectionPool(boolean connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    public boolean isMinify() {
+        return minify;
+    }
+
+    public void setMinify(boolean minify) {
+        this.minify = minify;
+    }
+
+    public void setMetrics(NpmExportMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public NpmDataCodec resolveDataCodec(Class<?> serviceClass) {
+        NpmPackage npmPackage = AnnotationUtils.findAnnotation(serviceClass, NpmPackage.class);
+        if (npmPackage != null && npmPackage.codec() != NpmDataCodec.DEFAULT) {
+            return npmPackage.codec();
+        }
+        return dataCodec;
+    }
+
+    public NpmPackageArchive build(String packageName, @Nullable String version, String serviceName, RSocketServiceStubModel stubModel) throws IOException {
+        return build(packageName, version, serviceName, stubModel, NpmArchiveFormat.TGZ);
+    }
+
+    /**
+     * build npm package for service
+     *
+     * @param packageName npm package name
+     * @param version     version, null or empty to derive it from content hash, such as 0.0.0-g1a2b3c4d5e6f
+     * @param serviceName service name
+     * @param stubModel   stub model
+     * @param format      archive format
+     * @return npm package archive
+     * @throws IOException I/O exception
+     */
+    public NpmPackageArchive build(String packageName, @Nullable String version, String serviceName, RSocketServiceStubModel stubModel,
+                                   NpmArchiveFormat format) throws IOException {
+        String rsocketServiceName = serviceName.substring(serviceName.lastIndexOf('.') + 1);
+        NpmDataCodec serviceDataCodec = resolveDataCodec(stubModel.getServiceClass());
+        //package.json
+        long start = System.nanoTime();
+        PackageJsonGenerator jsonGenerator = new PackageJsonGenerator(packageName, VERSION_PLACEHOLDER);
+        jsonGenerator.addContext("description", "npm package to call RSocket " + rsocketServiceName + " from " + appName + " Spring Boot App");
+        if (serviceDataCodec == NpmDataCodec.CBOR) {
+            jsonGenerator.addDependency("cbor", "^5.0.2");
+        }
+        jsonGenerator.addField("module", "\"index.mjs\"");
+        jsonGenerator.addField("sideEffects", "false");
+        jsonGenerator.addField("exports", exportsField(connectionPool));
+        if (connectionPool) {
+            jsonGenerator.addDependency("ws", "^7.2.3");
+        }
+        String packageJson = jsonGenerator.generate();
+        metrics.recordStage(packageName, NpmExportMetrics.STAGE_PACKAGE_JSON, start);
+        //index.js
+        start = System.nanoTime();
+        RSocketServiceJavaScriptStubGenerator jsGenerator = new RSocketServiceJavaScriptStubGenerator(stubModel);
+        jsGenerator.setVersion(VERSION_PLACEHOLDER);
+        String indexJs = javaScript(jsGenerator.generate(serviceName, serviceDataCodec));
+        String indexMjs = javaScript(jsGenerator.generateRuntime(ModuleFormat.ESM, serviceDataCodec)
+                + jsGenerator.generateService(serviceName, ModuleFormat.ESM, null));
+        metrics.recordStage(packageName, NpmExportMetrics.STAGE_JAVASCRIPT, start);
+        //index.d.ts
+        start = System.nanoTime();
+        TypeScriptDeclarationGenerator tsGenerator = new TypeScriptDeclarationGenerator(stubModel);
+        String indexDts = tsGenerator.generate();
+        metrics.recordStage(packageName, NpmExportMetrics.STAGE_TYPESCRIPT, start);
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put(rsocketServiceName + "/package.json", packageJson);
+        entries.put(rsocketServiceName + "/index.js", indexJs);
+        entries.put(rsocketServiceName + "/index.mjs", indexMjs);
+        entries.put(rsocketServiceName + "/index.d.ts", indexDts);
+        if (connectionPool) {
+            RSocketConnectionPoolGenerator poolGenerator = new RSocketConnectionPoolGenerator();
+            entries.put(rsocketServiceName + "/connection.js", javaScript(poolGenerator.generate(serviceDataCodec)));
+            entries.put(rsocketServiceName + "/connection.d.ts", poolGenerator.generateDeclaration());
+        }
+        return archive(packageName, packageName, version, format, entries);
+    }
+
+    /**
+     * build bundle with many services: shared runtime.js, ES module and declaration for every service,
+     * and index.js with tree-shakable exports
+     *
+     * @param bundleName npm package name of bundle
+     * @param version    version, null or empty to derive it from content hash
+     * @param services   service name to stub model
+     * @param format     archive format
+     * @return bundle archive
+     * @throws IOException              I/O exception
+     * @throws NpmDataCodecConflictException services with different data codecs
+     */
+    public NpmPackageArchive buildBundle(String bundleName, @Nullable String version, Map<String, RSocketServiceStubModel> services,
+                                         NpmArchiveFormat format) throws IOException {
+        List<NpmDataCodec> dataCodecs = services.values().stream()
+                .map(stubModel -> resolveDataCodec(stubModel.getServiceClass()))
+                .distinct()
+                .collect(Collectors.toList());
+        if (dataCodecs.size() > 1) {
+            throw new NpmDataCodecConflictException("Services in bundle use different data codecs: " + dataCodecs);
+        }
+        NpmDataCodec bundleDataCodec = dataCodecs.isEmpty() ? dataCodec : dataCodecs.get(0);
+        String rootDir = bundleName.substring(bundleName.lastIndexOf('/') + 1);
+        //package.json
+        long start = System.nanoTime();
+        PackageJsonGenerator jsonGenerator = new PackageJsonGenerator(bundleName, VERSION_PLACEHOLDER);
+        jsonGenerator.addContext("description", "npm bundle to call RSocket services from " + appName + " Spring Boot App");
+        jsonGenerator.addField("module", "\"index.js\"");
+        jsonGenerator.addField("type", "\"module\"");
+        jsonGenerator.addField("sideEffects", "false");
+        if (bundleDataCodec == NpmDataCodec.CBOR) {
+            jsonGenerator.addDependency("cbor", "^5.0.2");
+        }
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put(rootDir + "/package.json", jsonGenerator.generate());
+        metrics.recordStage(NpmExportMetrics.BUNDLE_PACKAGE_TAG, NpmExportMetrics.STAGE_PACKAGE_JSON, start);
+        //runtime.js and service modules
+        start = System.nanoTime();
+        StringBuilder indexJs = new StringBuilder();
+        StringBuilder indexDts = new StringBuilder();
+        boolean runtimeGenerated = false;
+        for (Map.Entry<String, RSocketServiceStubModel> entry : services.entrySet()) {
+            String serviceName = entry.getKey();
+            String rsocketServiceName = serviceName.substring(serviceName.lastIndexOf('.') + 1);
+            RSocketServiceJavaScriptStubGenerator jsGenerator = new RSocketServiceJavaScriptStubGenerator(entry.getValue());
+            jsGenerator.setVersion(VERSION_PLACEHOLDER);
+            if (!runtimeGenerated) {
+                String runtimeJs = jsGenerator.generateRuntime(ModuleFormat.ESM, bundleDataCodec)
+                        + jsGenerator.responseCacheClass()
+                        + "export {" + RSocketServiceJavaScriptStubGenerator.RUNTIME_EXPORTS + "};\n";
+                entries.put(rootDir + "/runtime.js", javaScript(runtimeJs));
+                runtimeGenerated = true;
+            }
+            entries.put(rootDir + "/" + rsocketServiceName + ".js",
+                    javaScript(jsGenerator.generateService(serviceName, ModuleFormat.ESM, "./runtime.js")));
+            entries.put(rootDir + "/" + rsocketServiceName + ".d.ts",
+                    new TypeScriptDeclarationGenerator(entry.getValue()).generate());
+            indexJs.append("export {default as ").append(rsocketServiceName).append("} from './").append(rsocketServiceName).append(".js';\n");
+            indexDts.append("export {default as ").append(rsocketServiceName).append("} from './").append(rsocketServiceName).append("';\n");
+        }
+        entries.put(rootDir + "/index.js", indexJs.toString());
+        entries.put(rootDir + "/index.d.ts", indexDts.toString());
+        metrics.recordStage(NpmExportMetrics.BUNDLE_PACKAGE_TAG, NpmExportMetrics.STAGE_JAVASCRIPT, start);
+        return archive(bundleName, NpmExportMetrics.BUNDLE_PACKAGE_TAG, version, format, entries);
+    }
+
+    /**
+     * conditional exports: ES module for import, CommonJS for require
+     *
+     * @param connectionPool with connection.js
+     * @return exports field in JSON
+     */
+    private static String exportsField(boolean connectionPool) {
+        StringBuilder exports = new StringBuilder();
+        exports.append("{\n")
+                .append("    \".\": {\n")
+                .append("      \"types\": \"./index.d.ts\",\n")
+                .append("      \"import\": \"./index.mjs\",\n")
+                .append("      \"require\": \"./index.js\"\n")
+                .append("    },\n");
+        if (connectionPool) {
+            exports.append("    \"./connection\": {\n")
+                    .append("      \"types\": \"./connection.d.ts\",\n")
+                    .append("      \"require\": \"./connection.js\"\n")
+                    .append("    },\n");
+        }
+        exports.append("    \"./package.json\": \"./package.json\"\n")
+                .append("  }");
+        return exports.toString();
+    }
+
+    private String javaScript(String jsCode) {
+        return minify ? JavaScriptMinifier.minify(jsCode) : jsCode;
+    }
+
+    /**
+     * version from content hash of generated files, same files get same version
+     *
+     * @param entries generated files with version placeholder
+     * @return prerelease version of 0.0.0, such as 0.0.0-g1a2b3c4d5e6f
+     */
+    private static String contentVersion(Map<String, String> entries) {
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            content.append(entry.getKey()).append('\0').append(entry.getValue()).append('\0');
+        }
+        // "g" prefix keeps prerelease identifier alphanumeric, numeric identifier with leading zero is invalid in semver
+        return "0.0.0-g" + NpmPackageArchive.hex(NpmPackageArchive.digest("SHA-256", content.toString().getBytes(StandardCharsets.UTF_8))).substring(0, 12);
+    }
+
+    private NpmPackageArchive archive(String packageName, String packageTag, @Nullable String version, NpmArchiveFormat format,
+                                      Map<String, String> entries) throws IOException {
+        String resolvedVersion = version != null && !version.isEmpty() ? version : contentVersion(entries);
+        //tar, gzip for tgz format
+        long start = System.nanoTime();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        TarArchiveOutputStream tarOut = new TarArchiveOutputStream(bos);
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            addBinaryToTarGz(tarOut, entry.getKey(), entry.getValue().replace(VERSION_PLACEHOLDER, resolvedVersion).getBytes(StandardCharsets.UTF_8));
+        }
+        tarOut.finish();
+        tarOut.close();
+        byte[] content = format == NpmArchiveFormat.TGZ ? gzip(bos.toByteArray()) : bos.toByteArray();
+        Map<String, Object> manifest = null;
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            if (isPackageJson(entry.getKey())) {
+                manifest = parseManifest(entry.getValue().replace(VERSION_PLACEHOLDER, resolvedVersion));
+            }
+        }
+        NpmPackageArchive archive = new NpmPackageArchive(packageName, resolvedVersion, format, content, manifest, Instant.now());
+        metrics.recordStage(packageTag, NpmExportMetrics.STAGE_ARCHIVE, start);
+        return archive;
+    }
+
+    public void addBinaryToTarGz(TarArchiveOutputStream tgzOut, String name, byte[] content) throws IOException {
+        TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(content.length);
+        entry.setModTime(TAR_ENTRY_MOD_TIME);
+        tgzOut.putArchiveEntry(entry);
+        tgzOut.write(content);
+        tgzOut.closeArchiveEntry();
+    }
+
+    public byte[] gzip(byte[] tarball) throws IOException {
+        GzipParameters parameters = new GzipParameters();
+        parameters.setCompressionLevel(compressionLevel);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(tarball.length / 4);
+        try (GzipCompressorOutputStream gzOut = new GzipCompressorOutputStream(bos, parameters)) {
+            gzOut.write(tarball);
+        }
+        return bos.toByteArray();
+    }
+
+    public static byte[] gunzip(byte[] tgz) throws IOException {
+        try (InputStream gzIn = new GzipCompressorInputStream(new ByteArrayInputStream(tgz))) {
+            return StreamUtils.copyToByteArray(gzIn);
+        }
+    }
+
+    /**
+     * fingerprint of build inputs: builder settings, bytecode of generator classes, service classes and typedef classes.
+     * Same fingerprint builds same package, so it's used as key of {@link NpmPackageStore}.
+     *
+     * @param packageName npm package name
+     * @param version     version, null to derive it from content hash
+     * @param format      archive format
+     * @param stubModels  stub models of services in package
+     * @return sha-256 hex, null if bytecode of any class is not available
+     */
+    @Nullable
+    public String fingerprint(String packageName, @Nullable String version, NpmArchiveFormat format, Collection<RSocketServiceStubModel> stubModels) {
+        byte[] generatorBytes = generatorBytecode();
+        if (generatorBytes == null) {
+            return null;
+        }
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        for (RSocketServiceStubModel stubModel : stubModels) {
+            for (Class<?> clazz = stubModel.getServiceClass(); clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+                classes.add(clazz);
+                classes.addAll(Arrays.asList(clazz.getInterfaces()));
+            }
+            classes.addAll(stubModel.getTypeDefs().keySet());
+        }
+        ByteArrayOutputStream inputs = new ByteArrayOutputStream();
+        String settings = packageName + "\0" + version + "\0" + format + "\0" + appName + "\0" + dataCodec + "\0"
+                + compressionLevel + "\0" + connectionPool + "\0" + minify + "\0";
+        byte[] settingBytes = settings.getBytes(StandardCharsets.UTF_8);
+        inputs.write(settingBytes, 0, settingBytes.length);
+        inputs.write(generatorBytes, 0, generatorBytes.length);
+        return copyBytecode(classes, inputs) ? NpmPackageArchive.hex(NpmPackageArchive.digest("SHA-256", inputs.toByteArray())) : null;
+    }
+
+    /**
+     * bytecode of generator package, including inner classes, and generator classes in this package
+     *
+     * @return bytecode, null if any class is not available
+     */
+    @Nullable
+    static byte[] generatorBytecode() {
+        if (generatorBytecode == null) {
+            ByteArrayOutputStream bytecode = new ByteArrayOutputStream();
+            String generatorPath = ClassUtils.classPackageAsResourcePath(RSocketServiceJavaScriptStubGenerator.class);
+            try {
+                Resource[] resources = new PathMatchingResourcePatternResolver(NpmPackageBuilder.class.getClassLoader())
+                        .getResources(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX + generatorPath + "/*" + ClassUtils.CLASS_FILE_SUFFIX);
+                Arrays.sort(resources, Comparator.comparing(Resource::getFilename, Comparator.nullsFirst(Comparator.naturalOrder())));
+                for (Resource resource : resources) {
+                    try (InputStream in = resource.getInputStream()) {
+                        StreamUtils.copy(in, bytecode);
+                    }
+                }
+            } catch (IOException e) {
+                return null;
+            }
+            if (!copyBytecode(Arrays.asList(GENERATOR_CLASSES), bytecode)) {
+                return null;
+            }
+            generatorBytecode = bytecode.toByteArray();
+        }
+        return generatorBytecode;
+    }
+
+    private static boolean copyBytecode(Collection<Class<?>> classes, ByteArrayOutputStream out) {
+        for (Class<?> clazz : classes) {
+            ClassLoader classLoader = clazz.getClassLoader();
+            if (classLoader == null) {
+                return false;
+            }
+            try (InputStream in = classLoader.getResourceAsStream(ClassUtils.convertClassNameToResourcePath(clazz.getName()) + ClassUtils.CLASS_FILE_SUFFIX)) {
+                if (in == null) {
+                    return false;
+                }
+                StreamUtils.copy(in, out);
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * read package.json from tarball
+     *
+     * @param tgz tarball content
+     * @return package.json content, null if absent
+     * @throws IOException I/O exception
+     */
+    @Nullable
+    public static String readPackageJson(byte[] tgz) throws IOException {
+        try (TarArchiveInputStream tarIn = new TarArchiveInputStream(new ByteArrayInputStream(gunzip(tgz)))) {
+            TarArchiveEntry entry;
+            while ((entry = tarIn.getNextTarEntry()) != null) {
+                if (isPackageJson(entry.getName())) {
+                    return StreamUtils.copyToString(tarIn, StandardCharsets.UTF_8);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * parse package.json as manifest
+     *
+     * @param packageJson package.json content
+     * @return manifest
+     * @throws IOException JSON exception
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseManifest(String packageJson) throws IOException {
+        return objectMapper.readValue(packageJson, LinkedHashMap.class);
+    }
+
+    private static boolean isPackageJson(String entryName) {
+        return entryName.endsWith("/package.json") && entryName.indexOf('/') == entryName.lastIndexOf('/');
+    }
+
+    /**
+     * prebuilt tarball location in classpath
+     *
+     * @param rsocketServiceName service simple name
+     * @return classpath location
+     */
+    public static String prebuiltLocation(String rsocketServiceName) {
+        return PREBUILT_LOCATION + rsocketServiceName + ".tgz";
+    }
+}
@@ -0,0 +1,96 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * bounded LRU cache for generated npm package archives, key is package name, version and archive format,
+ * and latest version of every package is kept in a LRU map with same bound
+ *
+ * @author linux_china
+ */
+public class NpmPackageCache {
+    private final int maxSize;
+    private final Map<String, NpmPackageArchive> archives;
+    /**
+     * latest version for package name and archive format, and content hash version is known after build
+     */
+    private final Map<String, String> latestVersions;
+
+    public NpmPackageCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.archives = new LinkedHashMap<String, NpmPackageArchive>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, NpmPackageArchive> eldest) {
+                return size() > NpmPackageCache.this.maxSize;
+            }
+        };
+        this.latestVersions = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > NpmPackageCache.this.maxSize;
+            }
+        };
+    }
+
+    @Nullable
+    public NpmPackageArchive get(String packageName, String version) {
+        return get(packageName, version, NpmArchiveFormat.TGZ);
+    }
+
+    @Nullable
+    public synchronized NpmPackageArchive get(String packageName, String version, NpmArchiveFormat format) {
+        return archives.get(cacheKey(packageName, version, format));
+    }
+
+    /**
+     * get archive of latest version
+     *
+     * @param cacheName cache name
+     * @param format    archive format
+     * @return archive, null if absent
+     */
+    @Nullable
+    public synchronized NpmPackageArchive getLatest(String cacheName, NpmArchiveFormat format) {
+        String version = latestVersions.get(cacheName + format.getFileExtension());
+        return version != null ? archives.get(cacheKey(cacheName, version, format)) : null;
+    }
+
+    public void put(NpmPackageArchive archive) {
+        put(archive.getPackageName(), archive);
+    }
+
+    /**
+     * put archive with cache name, such as bundle name with services
+     *
+     * @param cacheName cache name
+     * @param archive   archive
+     */
+    public synchronized void put(String cacheName, NpmPackageArchive archive) {
+        if (maxSize > 0) {
+            archives.put(cacheKey(cacheName, archive.getVersion(), archive.getFormat()), archive);
+            latestVersions.put(cacheName + archive.getFormat().getFileExtension(), archive.getVersion());
+        }
+    }
+
+    public synchronized List<NpmPackageArchive> getArchives() {
+        return new ArrayList<>(archives.values());
+    }
+
+    public synchronized int size() {
+        return archives.size();
+    }
+
+    public synchronized void clear() {
+        archives.clear();
+        latestVersions.clear();
+    }
+
+    private String cacheKey(String packageName, String version, NpmArchiveFormat format) {
+        return packageName + "@" + version + format.getFileExtension();
+    }
+}
@@ -0,0 +1,144 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import org.mvnsearch.boot.npm.export.rsocket.generator.RSocketServiceStubModel;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.util.ClassUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.Deflater;
+
+/**
+ * build time npm package exporter: write tarballs of @MessageMapping services to META-INF/npm/ in output directory,
+ * and the tarballs will be served by NpmRSocketExportController without generation.
+ * Usage: NpmPackageExporter &lt;outputDirectory&gt; &lt;basePackages&gt; [appName] [--npm.export.rsocket.codec=cbor]
+ * <p>
+ * spring.application.name, codec, connection pool and minify are read from application.properties in output directory,
+ * and arguments as --key=value override them, so prebuilt tarballs are same as on-demand ones.
+ *
+ * @author linux_china
+ */
+public class NpmPackageExporter {
+    private final File outputDir;
+    private final String appName;
+    private final NpmRSocketExportProperties properties;
+
+    public NpmPackageExporter(File outputDir, String appName) {
+        this(outputDir, appName, new NpmRSocketExportProperties());
+    }
+
+    public NpmPackageExporter(File outputDir, String appName, NpmRSocketExportProperties properties) {
+        this.outputDir = outputDir;
+        this.appName = appName;
+        this.properties = properties;
+    }
+
+    public List<File> export(String... basePackages) throws IOException {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(MessageMapping.class));
+        NpmPackageBuilder packageBuilder = new NpmPackageBuilder(appName);
+        packageBuilder.setDataCodec(properties.getCodec());
+        packageBuilder.setConnectionPool(properties.isConnectionPool());
+        packageBuilder.setMinify(properties.isMinify());
+        // prebuilt tarballs are generated once, so trade CPU for size
+        packageBuilder.setCompressionLevel(Deflater.BEST_COMPRESSION);
+        File npmDir = new File(outputDir, NpmPackageBuilder.PREBUILT_LOCATION);
+        if (!npmDir.exists() && !npmDir.mkdirs()) {
+            throw new IOException("Failed to create directory: " + npmDir.getAbsolutePath());
+        }
+        List<File> tarballs = new ArrayList<>();
+        for (String basePackage : basePackages) {
+            for (BeanDefinition beanDefinition : scanner.findCandidateComponents(basePackage.trim())) {
+                Class<?> serviceClass = ClassUtils.resolveClassName(beanDefinition.getBeanClassName(), ClassUtils.getDefaultClassLoader());
+                MessageMapping messageMapping = AnnotationUtils.findAnnotation(serviceClass, MessageMapping.class);
+                if (messageMapping == null || messageMapping.value().length == 0) {
+                    continue;
+                }
+                NpmPackage npmPackage = AnnotationUtils.findAnnotation(serviceClass, NpmPackage.class);
+                RSocketExportedService exportedService = new RSocketExportedService(messageMapping.value()[0], beanDefinition.getBeanClassName(),
+                        serviceClass, npmPackage, RSocketServiceStubModel.of(serviceClass));
+                String version = npmPackage != null && !npmPackage.version().isEmpty() ? npmPackage.version() : null;
+                NpmPackageArchive archive = packageBuilder.build(exportedService.getPackageName(appName), version,
+                        exportedService.getServiceName(), exportedService.getStubModel());
+                File tarball = new File(outputDir, NpmPackageBuilder.prebuiltLocation(exportedService.getSimpleName()));
+                try (OutputStream out = new FileOutputStream(tarball)) {
+                    out.write(archive.getContent());
+                }
+                tarballs.add(tarball);
+            }
+        }
+        return tarballs;
+    }
+
+    /**
+     * application properties from application.properties in output directory, overridden by --key=value arguments
+     *
+     * @param outputDir output directory
+     * @param args      exporter arguments
+     * @return application properties
+     * @throws IOException io exception
+     */
+    public static Properties applicationProperties(File outputDir, List<String> args) throws IOException {
+        Properties applicationProperties = new Properties();
+        File propertiesFile = new File(outputDir, "application.properties");
+        if (propertiesFile.exists()) {
+            try (InputStream inputStream = new FileInputStream(propertiesFile)) {
+                applicationProperties.load(inputStream);
+            }
+        }
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                applicationProperties.setProperty(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return applicationProperties;
+    }
+
+    /**
+     * bind npm.export.rsocket properties
+     *
+     * @param applicationProperties application properties
+     * @return export properties
+     */
+    public static NpmRSocketExportProperties exportProperties(Properties applicationProperties) {
+        NpmRSocketExportProperties properties = new NpmRSocketExportProperties();
+        new Binder(new MapConfigurationPropertySource(applicationProperties)).bind("npm.export.rsocket", Bindable.ofInstance(properties));
+        return properties;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> positionalArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                positionalArgs.add(arg);
+            }
+        }
+        if (positionalArgs.size() < 2) {
+            System.err.println("Usage: NpmPackageExporter <outputDirectory> <basePackages> [appName] [--npm.export.rsocket.codec=cbor]");
+            System.exit(1);
+        }
+        File outputDir = new File(positionalArgs.get(0));
+        Properties applicationProperties = applicationProperties(outputDir, Arrays.asList(args));
+        String appName = positionalArgs.size() > 2 ? positionalArgs.get(2)
+                : applicationProperties.getProperty("spring.application.name", NpmPackageBuilder.DEFAULT_APP_NAME);
+        List<File> tarballs = new NpmPackageExporter(outputDir, appName, exportProperties(applicationProperties)).export(positionalArgs.get(1).split(","));
+        for (File tarball : tarballs) {
+            System.out.println("npm package generated: " + tarball.getAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * on-disk store for generated npm packages: tarball files are named by content hash,
+ * and index maps build fingerprint to tarball, so packages survive restarts and are served from file without heap copy.
+ * Index entries not used within max age and least recently used entries over max entries are removed with their tarballs.
+ *
+ * @author linux_china
+ */
+public class NpmPackageStore {
+    private static final Logger log = LoggerFactory.getLogger(NpmPackageStore.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path tarballDir;
+    private final Path indexDir;
+    private final int maxEntries;
+    private final Duration maxAge;
+
+    public NpmPackageStore(Path directory, int maxEntries, Duration maxAge) {
+        this.tarballDir = directory.resolve("tarballs");
+        this.indexDir = directory.resolve("index");
+        this.maxEntries = maxEntries;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * get stored archive by fingerprint
+     *
+     * @param fingerprint build fingerprint
+     * @return file archive, null if absent or tarball file is broken
+     */
+    @Nullable
+    public NpmPackageArchive get(String fingerprint) {
+        Path indexFile = indexDir.resolve(fingerprint + ".properties");
+        if (!Files.exists(indexFile)) {
+            return null;
+        }
+        try {
+            Properties index = new Properties();
+            try (InputStream in = Files.newInputStream(indexFile)) {
+                index.load(in);
+            }
+            NpmArchiveFormat format = NpmArchiveFormat.valueOf(index.getProperty("format"));
+            String contentHash = index.getProperty("contentHash");
+            int size = Integer.parseInt(index.getProperty("size"));
+            Path tarball = tarballDir.resolve(tarballFileName(index));
+            if (!Files.exists(tarball) || Files.size(tarball) != size) {
+                return null;
+            }
+            // modification time of index is last used time for clean-up
+            Files.setLastModifiedTime(indexFile, FileTime.fromMillis(System.currentTimeMillis()));
+            String manifest = index.getProperty("manifest");
+            return NpmPackageArchive.ofFile(index.getProperty("packageName"), index.getProperty("version"), format, tarball, size,
+                    contentHash, index.getProperty("integrity"), index.getProperty("shasum"),
+                    manifest != null ? NpmPackageBuilder.parseManifest(manifest) : null,
+                    Instant.ofEpochMilli(Long.parseLong(index.getProperty("lastModified"))));
+        } catch (Exception e) {
+            log.warn("Failed to read npm package index: " + indexFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * write tarball once and index it by fingerprint
+     *
+     * @param fingerprint build fingerprint
+     * @param archive     archive in heap
+     * @return file archive
+     * @throws IOException I/O exception
+     */
+    public synchronized NpmPackageArchive put(String fingerprint, NpmPackageArchive archive) throws IOException {
+        Files.createDirectories(tarballDir);
+        Files.createDirectories(indexDir);
+        Path tarball = tarballDir.resolve(archive.getContentHash() + archive.getFormat().getFileExtension());
+        if (!Files.exists(tarball) || Files.size(tarball) != archive.getSize()) {
+            Path tempFile = Files.createTempFile(tarballDir, archive.getContentHash(), ".tmp");
+            Files.write(tempFile, archive.getContent());
+            move(tempFile, tarball);
+        }
+        Properties index = new Properties();
+        index.setProperty("packageName", archive.getPackageName());
+        index.setProperty("version", archive.getVersion());
+        index.setProperty("format", archive.getFormat().name());
+        index.setProperty("contentHash", archive.getContentHash());
+        index.setProperty("integrity", archive.getIntegrity());
+        index.setProperty("shasum", archive.getShasum());
+        index.setProperty("size", String.valueOf(archive.getSize()));
+        index.setProperty("lastModified", String.valueOf(archive.getLastModified().toEpochMilli()));
+        if (archive.getManifest() != null) {
+            index.setProperty("manifest", objectMapper.writeValueAsString(archive.getManifest()));
+        }
+        Path tempFile = Files.createTempFile(indexDir, fingerprint, ".tmp");
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            index.store(out, archive.getPackageName());
+        }
+        move(tempFile, indexDir.resolve(fingerprint + ".properties"));
+        cleanUp();
+        return NpmPackageArchive.ofFile(archive.getPackageName(), archive.getVersion(), archive.getFormat(), tarball, archive.getSize(),
+                archive.getContentHash(), archive.getIntegrity(), archive.getShasum(), archive.getManifest(), archive.getLastModified());
+    }
+
+    /**
+     * remove index entries not used within max age or over max entries, then tarballs without index
+     */
+    public synchronized void cleanUp() {
+        if (!Files.isDirectory(indexDir)) {
+            return;
+        }
+        try {
+            List<Path> indexFiles;
+            try (Stream<Path> paths = Files.list(indexDir)) {
+                indexFiles = paths.filter(path -> path.getFileName().toString().endsWith(".properties")).collect(Collectors.toList());
+            }
+            Map<Path, Long> lastUsed = new HashMap<>();
+            for (Path indexFile : indexFiles) {
+                lastUsed.put(indexFile, Files.getLastModifiedTime(indexFile).toMillis());
+            }
+            indexFiles.sort(Comparator.comparing(lastUsed::get, Comparator.reverseOrder()));
+            long expiredBefore = System.currentTimeMillis() - maxAge.toMillis();
+            Set<String> usedTarballs = new HashSet<>();
+            for (int i = 0; i < indexFiles.size(); i++) {
+                Path indexFile = indexFiles.get(i);
+                if (i < maxEntries && lastUsed.get(indexFile) >= expiredBefore) {
+                    Properties index = new Properties();
+                    try (InputStream in = Files.newInputStream(indexFile)) {
+                        index.load(in);
+                    }
+                    usedTarballs.add(tarballFileName(index));
+                } else {
+                    Files.deleteIfExists(indexFile);
+                }
+            }
+            if (Files.isDirectory(tarballDir)) {
+                try (Stream<Path> paths = Files.list(tarballDir)) {
+                    for (Path tarball : paths.collect(Collectors.toList())) {
+                        String fileName = tarball.getFileName().toString();
+                        // temp files are written by put() in progress
+                        if (!fileName.endsWith(".tmp") && !usedTarballs.contains(fileName)) {
+                            Files.deleteIfExists(tarball);
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to clean up npm package store", e);
+        }
+    }
+
+    private static String tarballFileName(Properties index) {
+        return index.getProperty("contentHash") + NpmArchiveFormat.valueOf(index.getProperty("format")).getFileExtension();
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
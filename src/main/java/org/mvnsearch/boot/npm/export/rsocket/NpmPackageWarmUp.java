@@ -0,0 +1,87 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * generate npm packages of all exported services in parallel when application is ready
+ *
+ * @author linux_china
+ */
+public class NpmPackageWarmUp implements ApplicationListener<ApplicationReadyEvent> {
+    private static final Logger log = LoggerFactory.getLogger(NpmPackageWarmUp.class);
+    private final RSocketExportedServiceRegistry serviceRegistry;
+    private final NpmRSocketExportController exportController;
+    private final int concurrency;
+    private final AtomicInteger generated = new AtomicInteger();
+    /**
+     * error messages of failed builds with service name as key
+     */
+    private final Map<String, String> failures = new ConcurrentHashMap<>();
+    private volatile int total = -1;
+    private volatile boolean completed = false;
+
+    public NpmPackageWarmUp(RSocketExportedServiceRegistry serviceRegistry, NpmRSocketExportController exportController,
+                            int concurrency) {
+        this.serviceRegistry = serviceRegistry;
+        this.exportController = exportController;
+        this.concurrency = Math.max(concurrency, 1);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        warmUp().subscribe();
+    }
+
+    public Mono<Void> warmUp() {
+        total = serviceRegistry.getServices().size();
+        long start = System.currentTimeMillis();
+        return Flux.fromIterable(serviceRegistry.getServices())
+                .flatMap(exportedService -> exportController.npmPackageArchive(exportedService, NpmArchiveFormat.TGZ)
+                        .doOnNext(archive -> generated.incrementAndGet())
+                        .onErrorResume(e -> {
+                            log.error("Failed to generate npm package for " + exportedService.getServiceName(), e);
+                            failures.put(exportedService.getServiceName(), String.valueOf(e.getMessage()));
+                            return Mono.empty();
+                        }), concurrency)
+                .then()
+                .doOnTerminate(() -> {
+                    completed = true;
+                    log.info("npm packages warm-up: " + generated.get() + "/" + total + " generated, " + failures.size() + " failed in "
+                            + (System.currentTimeMillis() - start) + "ms");
+                });
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * warm-up finished and some packages failed to generate
+     *
+     * @return failed
+     */
+    public boolean isFailed() {
+        return completed && !failures.isEmpty();
+    }
+
+    public Map<String, String> getFailures() {
+        return failures;
+    }
+
+    public int getGenerated() {
+        return generated.get();
+    }
+
+    public int getTotal() {
+        return total;
+    }
+}
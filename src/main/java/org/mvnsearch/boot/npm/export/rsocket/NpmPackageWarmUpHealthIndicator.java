@@ -0,0 +1,29 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+
+/**
+ * npm package warm-up health indicator: OUT_OF_SERVICE until all packages generated, and DOWN if any package failed to generate
+ *
+ * @author linux_china
+ */
+public class NpmPackageWarmUpHealthIndicator extends AbstractHealthIndicator {
+    private final NpmPackageWarmUp warmUp;
+
+    public NpmPackageWarmUpHealthIndicator(NpmPackageWarmUp warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        if (warmUp.isFailed()) {
+            builder.down().withDetail("failed", warmUp.getFailures());
+        } else if (warmUp.isCompleted()) {
+            builder.up();
+        } else {
+            builder.outOfService();
+        }
+        builder.withDetail("generated", warmUp.getGenerated()).withDetail("total", warmUp.getTotal());
+    }
+}
@@ -1,7 +1,25 @@
 package org.mvnsearch.boot.npm.export.rsocket;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.autoconfigure.health.ConditionalOnEnabledHealthIndicator;
+import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Paths;
 
 /**
  * npm rsocket export auto configuration
@@ -9,10 +27,97 @@ import org.springframework.context.annotation.Configuration;
  * @author linux_china
  */
 @Configuration
+@AutoConfigureAfter(CompositeMeterRegistryAutoConfiguration.class)
+@EnableConfigurationProperties(NpmRSocketExportProperties.class)
 public class NpmRSocketExportAutoConfiguration {
 
     @Bean
     public NpmRSocketExportController npmExportController() {
         return new NpmRSocketExportController();
     }
+
+    @Bean
+    public RSocketExportedServiceRegistry rsocketExportedServiceRegistry() {
+        return new RSocketExportedServiceRegistry();
+    }
+
+    @Bean
+    public NpmPackageBuilder npmPackageBuilder(Environment env, NpmRSocketExportProperties properties, NpmExportMetrics metrics) {
+        NpmPackageBuilder packageBuilder = new NpmPackageBuilder(env.getProperty("spring.application.name", NpmPackageBuilder.DEFAULT_APP_NAME));
+        packageBuilder.setDataCodec(properties.getCodec());
+        packageBuilder.setCompressionLevel(properties.getGzip().getCompressionLevel());
+        packageBuilder.setConnectionPool(properties.isConnectionPool());
+        packageBuilder.setMinify(properties.isMinify());
+        packageBuilder.setMetrics(metrics);
+        return packageBuilder;
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler npmExportScheduler(NpmRSocketExportProperties properties) {
+        NpmRSocketExportProperties.Build build = properties.getBuild();
+        return Schedulers.newBoundedElastic(build.getThreads(), build.getQueueSize(), "npm-export");
+    }
+
+    @Bean
+    public NpmExportMetrics npmExportMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        return registry != null ? new NpmExportMetrics(registry) : NpmExportMetrics.noop();
+    }
+
+    @Bean
+    public NpmPackageCache npmPackageCache(NpmRSocketExportProperties properties) {
+        return new NpmPackageCache(properties.getCache().getMaxSize());
+    }
+
+    @Bean(initMethod = "cleanUp")
+    @ConditionalOnProperty(prefix = "npm.export.rsocket.store", name = "enabled", havingValue = "true")
+    public NpmPackageStore npmPackageStore(NpmRSocketExportProperties properties) {
+        NpmRSocketExportProperties.Store store = properties.getStore();
+        return new NpmPackageStore(Paths.get(store.getDirectory()), store.getMaxEntries(), store.getMaxAge());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "npm.export.rsocket.batch", name = "enabled", havingValue = "true")
+    public NpmBatchController npmBatchController(RSocketExportedServiceRegistry serviceRegistry,
+                                                 ObjectProvider<RSocketMessageHandler> messageHandler) {
+        return new NpmBatchController(serviceRegistry, messageHandler);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "npm.export.rsocket.warm-up", name = "enabled", havingValue = "true")
+    public NpmPackageWarmUp npmPackageWarmUp(RSocketExportedServiceRegistry serviceRegistry, NpmRSocketExportController exportController,
+                                             NpmRSocketExportProperties properties) {
+        return new NpmPackageWarmUp(serviceRegistry, exportController, properties.getWarmUp().getConcurrency());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "npm.export.rsocket.route-metrics", name = "enabled", havingValue = "true")
+    @ConditionalOnBean(MeterRegistry.class)
+    public NpmRSocketRouteMetrics npmRSocketRouteMetrics(RSocketExportedServiceRegistry serviceRegistry, MeterRegistry meterRegistry) {
+        return new NpmRSocketRouteMetrics(serviceRegistry, meterRegistry);
+    }
+
+    @Configuration
+    @ConditionalOnClass(HealthIndicator.class)
+    static class NpmPackageWarmUpHealthConfiguration {
+
+        @Bean
+        @ConditionalOnProperty(prefix = "npm.export.rsocket.warm-up", name = "enabled", havingValue = "true")
+        @ConditionalOnEnabledHealthIndicator("npmwarmup")
+        public NpmPackageWarmUpHealthIndicator npmWarmUpHealthIndicator(NpmPackageWarmUp warmUp) {
+            return new NpmPackageWarmUpHealthIndicator(warmUp);
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(Endpoint.class)
+    static class NpmExportEndpointConfiguration {
+
+        @Bean
+        @ConditionalOnAvailableEndpoint
+        public NpmExportEndpoint npmExportEndpoint(RSocketExportedServiceRegistry serviceRegistry, NpmPackageCache packageCache,
+                                                   NpmPackageBuilder packageBuilder) {
+            return new NpmExportEndpoint(serviceRegistry, packageCache, packageBuilder.getAppName());
+        }
+    }
 }
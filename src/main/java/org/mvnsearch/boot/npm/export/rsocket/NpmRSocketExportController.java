@@ -1,30 +1,43 @@
 package org.mvnsearch.boot.npm.export.rsocket;
 
-import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
-import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.intellij.lang.annotations.Language;
-import org.jetbrains.annotations.NotNull;
-import org.mvnsearch.boot.npm.export.rsocket.generator.PackageJsonGenerator;
-import org.mvnsearch.boot.npm.export.rsocket.generator.RSocketServiceJavaScriptStubGenerator;
-import org.mvnsearch.boot.npm.export.rsocket.generator.TypeScriptDeclarationGenerator;
+import org.jetbrains.annotations.Nullable;
+import org.mvnsearch.boot.npm.export.rsocket.generator.RSocketServiceStubModel;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.ApplicationContext;
-import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.http.MediaType;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * npm export Controller
@@ -33,52 +46,134 @@ import java.util.List;
  */
 @RestController
 public class NpmRSocketExportController {
+    /**
+     * abbreviated packument MIME type requested by npm and yarn
+     */
+    public static final String NPM_INSTALL_JSON = "application/vnd.npm.install-v1+json";
+    private static final ObjectMapper objectMapper = new ObjectMapper();
     @Autowired
     private ApplicationContext applicationContext;
     @Autowired
-    private Environment env;
+    private NpmPackageBuilder packageBuilder;
+    @Autowired
+    private NpmPackageCache packageCache;
+    @Autowired
+    private RSocketExportedServiceRegistry serviceRegistry;
+    @Autowired
+    private NpmExportMetrics metrics;
+    @Autowired(required = false)
+    @Nullable
+    private NpmPackageStore packageStore;
+    /**
+     * bounded scheduler for reflection, generation and compression, shared by nothing else
+     */
+    @Autowired
+    @Qualifier("npmExportScheduler")
+    private Scheduler scheduler;
+    /**
+     * builds in progress by cache name and format, shared by concurrent requests for the same package
+     */
+    private final Map<String, Mono<NpmPackageArchive>> inFlightBuilds = new ConcurrentHashMap<>();
 
-    @GetMapping(value = "/npm/{*packageName}", produces = {"application/tar+gzip"})
-    public byte[] npmPackage(@PathVariable("packageName") String packageName, ServerWebExchange exchange) throws IOException {
+    @GetMapping(value = "/npm/{*packageName}", produces = {"application/tar+gzip", "application/x-tar", NPM_INSTALL_JSON, "application/json"})
+    public Mono<Void> npmPackage(@PathVariable("packageName") String packageName, ServerWebExchange exchange) {
         if (packageName.startsWith("/")) {
             packageName = packageName.substring(1);
         }
+        // tarball url in packument, such as @UserService/AccountService/-/AccountService-0.0.0-g1a2b3c4d5e6f.tgz
+        String tarballFileName = null;
+        int tarballIndex = packageName.indexOf("/-/");
+        if (tarballIndex > 0) {
+            tarballFileName = packageName.substring(tarballIndex + 3);
+            packageName = packageName.substring(0, tarballIndex);
+        }
+        NpmArchiveFormat format = NpmArchiveFormat.TGZ;
+        if (tarballFileName == null && packageName.endsWith(NpmArchiveFormat.TAR.getFileExtension())) {
+            format = NpmArchiveFormat.TAR;
+            packageName = packageName.substring(0, packageName.length() - NpmArchiveFormat.TAR.getFileExtension().length());
+        }
         String rsocketServiceName = packageName.substring(packageName.lastIndexOf("/") + 1);
-        Object serviceBean = getServiceBean(rsocketServiceName);
-        if (serviceBean != null) {
-            @NotNull
-            MessageMapping messageMapping = serviceBean.getClass().getAnnotation(MessageMapping.class);
-            String version = new SimpleDateFormat("yyyy.MM.dd").format(new Date());
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            GzipCompressorOutputStream gzOut = new GzipCompressorOutputStream(bos);
-            TarArchiveOutputStream tgzOut = new TarArchiveOutputStream(gzOut);
-            //package.json
-            PackageJsonGenerator jsonGenerator = new PackageJsonGenerator(packageName, version);
-            jsonGenerator.addContext("description", "npm package to call RSocket " + rsocketServiceName + " from " + env.getProperty("spring.application.name") + " Spring Boot App");
-            addBinaryToTarGz(tgzOut, rsocketServiceName + "/package.json", jsonGenerator.generate().getBytes(StandardCharsets.UTF_8));
-            //index.js
-            RSocketServiceJavaScriptStubGenerator jsGenerator = new RSocketServiceJavaScriptStubGenerator(serviceBean.getClass());
-            addBinaryToTarGz(tgzOut, rsocketServiceName + "/index.js", jsGenerator.generate(messageMapping.value()[0]).getBytes(StandardCharsets.UTF_8));
-            //index.d.ts
-            TypeScriptDeclarationGenerator tsGenerator = new TypeScriptDeclarationGenerator(serviceBean.getClass());
-            addBinaryToTarGz(tgzOut, rsocketServiceName + "/index.d.ts", tsGenerator.generate().getBytes(StandardCharsets.UTF_8));
-            tgzOut.finish();
-            tgzOut.close();
-            gzOut.close();
-            return bos.toByteArray();
+        long start = System.nanoTime();
+        RSocketExportedService exportedService = serviceRegistry.findService(rsocketServiceName);
+        if (exportedService != null) {
+            // package is served under any scope, and canonical name is the key of cache, store and metrics
+            String requestedName = packageName;
+            String name = packageName(exportedService);
+            metrics.recordStage(name, NpmExportMetrics.STAGE_LOOKUP, start);
+            exchange.getResponse().getHeaders().setVary(Collections.singletonList(HttpHeaders.ACCEPT));
+            MediaType packumentType = tarballFileName == null ? packumentMediaType(exchange) : null;
+            if (packumentType != null) {
+                exchange.getResponse().getHeaders().setContentType(packumentType);
+                return npmPackageArchive(exportedService, NpmArchiveFormat.TGZ)
+                        .flatMap(archive -> writePackument(requestedName, archive, exchange))
+                        .onErrorResume(RejectedExecutionException.class, e -> serviceUnavailable(exchange));
+            }
+            String expectedFileName = tarballFileName;
+            exchange.getResponse().getHeaders().setContentType(MediaType.parseMediaType(format.getMediaType()));
+            return npmPackageArchive(exportedService, format)
+                    .flatMap(archive -> {
+                        // tarball of other version is not available any more
+                        if (expectedFileName != null && !expectedFileName.equals(tarballFileName(archive))) {
+                            exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
+                            return Mono.empty();
+                        }
+                        return writeArchive(name, archive, exchange);
+                    })
+                    .onErrorResume(RejectedExecutionException.class, e -> serviceUnavailable(exchange));
         } else {
             exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
-            return new byte[]{};
+            return Mono.empty();
+        }
+    }
+
+    @GetMapping(value = "/npm-bundle/{*bundleName}", produces = {"application/tar+gzip", "application/x-tar"})
+    public Mono<Void> npmBundle(@PathVariable("bundleName") String bundleName,
+                                      @RequestParam(value = "services", required = false) @Nullable String services,
+                                      ServerWebExchange exchange) {
+        if (bundleName.startsWith("/")) {
+            bundleName = bundleName.substring(1);
+        }
+        NpmArchiveFormat format = NpmArchiveFormat.TGZ;
+        if (bundleName.endsWith(NpmArchiveFormat.TAR.getFileExtension())) {
+            format = NpmArchiveFormat.TAR;
+            bundleName = bundleName.substring(0, bundleName.length() - NpmArchiveFormat.TAR.getFileExtension().length());
+        }
+        if (!isBundleName(bundleName)) {
+            exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
+            return Mono.empty();
+        }
+        // services sorted by simple name without duplication, and same services get same bundle
+        Map<String, RSocketExportedService> exportedServices = new TreeMap<>();
+        if (services == null || services.isEmpty()) {
+            for (RSocketExportedService exportedService : serviceRegistry.getServices()) {
+                exportedServices.put(exportedService.getSimpleName(), exportedService);
+            }
+        } else {
+            for (String simpleName : services.split(",")) {
+                RSocketExportedService exportedService = serviceRegistry.findService(simpleName.trim());
+                if (exportedService == null) {
+                    exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
+                    return Mono.empty();
+                }
+                exportedServices.put(exportedService.getSimpleName(), exportedService);
+            }
         }
+        String name = bundleName;
+        exchange.getResponse().getHeaders().setContentType(MediaType.parseMediaType(format.getMediaType()));
+        return npmBundleArchive(name, new ArrayList<>(exportedServices.values()), format)
+                .flatMap(archive -> writeArchive(NpmExportMetrics.BUNDLE_PACKAGE_TAG, archive, exchange))
+                .onErrorResume(NpmDataCodecConflictException.class, e -> {
+                    exchange.getResponse().setStatusCode(HttpStatus.BAD_REQUEST);
+                    return Mono.empty();
+                })
+                .onErrorResume(RejectedExecutionException.class, e -> serviceUnavailable(exchange));
     }
 
     @GetMapping(value = "/npm/packages", produces = "text/markdown")
     public String npmPackages(ServerWebExchange exchange) {
         List<String> npmPackages = new ArrayList<>();
-        for (String beanName : applicationContext.getBeanDefinitionNames()) {
-            Object bean = applicationContext.getBean(beanName);
-            Class<?> beanClass = bean.getClass();
-            NpmPackage npmPackage = beanClass.getAnnotation(NpmPackage.class);
+        for (RSocketExportedService exportedService : serviceRegistry.getServices()) {
+            NpmPackage npmPackage = exportedService.getNpmPackage();
             if (npmPackage != null) {
                 npmPackages.add(npmPackage.value());
             }
@@ -121,23 +216,256 @@ public class NpmRSocketExportController {
         return builder.toString();
     }
 
-    public Object getServiceBean(String rsocketServiceName) {
-        for (String beanName : applicationContext.getBeanDefinitionNames()) {
-            Object bean = applicationContext.getBean(beanName);
-            Class<?> clazz = bean.getClass();
-            MessageMapping messageMapping = clazz.getAnnotation(MessageMapping.class);
-            if (messageMapping != null && messageMapping.value().length > 0 && messageMapping.value()[0].endsWith("." + rsocketServiceName)) {
-                return bean;
+    /**
+     * bundle is named "bundle" under scope of application or scope of @NpmPackage, such as @UserService/bundle
+     *
+     * @param bundleName bundle name
+     * @return valid bundle name or not
+     */
+    private boolean isBundleName(String bundleName) {
+        if (!bundleName.endsWith("/bundle")) {
+            return false;
+        }
+        String scope = bundleName.substring(0, bundleName.length() - "bundle".length());
+        if (scope.equals("@" + packageBuilder.getAppName() + "/")) {
+            return true;
+        }
+        for (RSocketExportedService exportedService : serviceRegistry.getServices()) {
+            if (exportedService.getPackageName(packageBuilder.getAppName()).startsWith(scope)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * canonical npm package name of exported service
+     *
+     * @param exportedService exported RSocket service
+     * @return npm package name
+     */
+    public String packageName(RSocketExportedService exportedService) {
+        return exportedService.getPackageName(packageBuilder.getAppName());
+    }
+
+    /**
+     * get npm package archive with canonical package name from cache, or build it on bounded elastic scheduler
+     *
+     * @param exportedService exported RSocket service
+     * @param format          archive format
+     * @return npm package archive
+     */
+    public Mono<NpmPackageArchive> npmPackageArchive(RSocketExportedService exportedService, NpmArchiveFormat format) {
+        String packageName = packageName(exportedService);
+        NpmPackage npmPackage = exportedService.getNpmPackage();
+        String version = npmPackage != null && !npmPackage.version().isEmpty() ? npmPackage.version() : null;
+        // prebuilt tarballs are on classpath already, and not kept in store
+        Supplier<String> fingerprint = () -> prebuiltResource(exportedService).exists() ? null
+                : packageBuilder.fingerprint(packageName, version, format, Collections.singletonList(exportedService.getStubModel()));
+        return cachedArchive(packageName, packageName, format, fingerprint, () -> buildNpmPackage(packageName, version, exportedService, format));
+    }
+
+    /**
+     * get bundle archive from cache, or build it on bounded elastic scheduler
+     *
+     * @param bundleName       npm package name of bundle
+     * @param exportedServices exported RSocket services in bundle
+     * @param format           archive format
+     * @return bundle archive
+     */
+    public Mono<NpmPackageArchive> npmBundleArchive(String bundleName, List<RSocketExportedService> exportedServices, NpmArchiveFormat format) {
+        String cacheName = bundleName + "?services=" + exportedServices.stream().map(RSocketExportedService::getSimpleName).collect(Collectors.joining(","));
+        Map<String, RSocketServiceStubModel> services = new LinkedHashMap<>();
+        for (RSocketExportedService exportedService : exportedServices) {
+            services.put(exportedService.getServiceName(), exportedService.getStubModel());
+        }
+        return cachedArchive(cacheName, NpmExportMetrics.BUNDLE_PACKAGE_TAG, format,
+                () -> packageBuilder.fingerprint(cacheName, null, format, services.values()),
+                () -> packageBuilder.buildBundle(bundleName, null, services, format));
+    }
+
+    /**
+     * archive from memory cache, package store, or build it
+     *
+     * @param cacheName   cache name
+     * @param packageTag  package tag of metrics
+     * @param format      archive format
+     * @param fingerprint build fingerprint for package store, and null fingerprint is not stored
+     * @param builder     archive builder
+     * @return archive
+     */
+    private Mono<NpmPackageArchive> cachedArchive(String cacheName, String packageTag, NpmArchiveFormat format, Supplier<String> fingerprint,
+                                                  Callable<NpmPackageArchive> builder) {
+        NpmPackageArchive cachedArchive = packageCache.getLatest(cacheName, format);
+        // tarball file may be removed by store clean-up
+        if (cachedArchive != null && cachedArchive.isAvailable()) {
+            metrics.cacheHit(packageTag);
+            return Mono.just(cachedArchive);
+        }
+        metrics.cacheMiss(packageTag);
+        // single flight: concurrent requests share one build, and entry is removed before result is emitted so errors and stale builds are not kept
+        return inFlightBuilds.computeIfAbsent(cacheName + "@" + format.name(), buildKey -> buildArchive(cacheName, format, fingerprint, builder)
+                .doOnTerminate(() -> inFlightBuilds.remove(buildKey))
+                .cache());
+    }
+
+    private Mono<NpmPackageArchive> buildArchive(String cacheName, NpmArchiveFormat format, Supplier<String> fingerprint,
+                                                 Callable<NpmPackageArchive> builder) {
+        // reflection, generation and compression are blocking, keep them off the event loop and RSocket traffic
+        return Mono.fromCallable(() -> {
+            // previous build may complete between cache miss and single flight
+            NpmPackageArchive cachedArchive = packageCache.getLatest(cacheName, format);
+            if (cachedArchive != null && cachedArchive.isAvailable()) {
+                return cachedArchive;
+            }
+            String buildFingerprint = packageStore != null ? fingerprint.get() : null;
+            NpmPackageArchive archive = buildFingerprint != null ? packageStore.get(buildFingerprint) : null;
+            if (archive == null) {
+                archive = builder.call();
+                if (buildFingerprint != null) {
+                    // file archive in store, and heap content is released
+                    archive = packageStore.put(buildFingerprint, archive);
+                }
+            }
+            packageCache.put(cacheName, archive);
+            return archive;
+        }).subscribeOn(scheduler);
+    }
+
+    /**
+     * all build threads are busy and build queue is full
+     *
+     * @param exchange exchange
+     * @return empty
+     */
+    private static Mono<Void> serviceUnavailable(ServerWebExchange exchange) {
+        exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+        return Mono.empty();
+    }
+
+    private Mono<Void> writeArchive(String packageTag, NpmPackageArchive archive, ServerWebExchange exchange) {
+        if (exchange.checkNotModified(archive.getContentHash(), archive.getLastModified())) {
+            metrics.notModified(packageTag);
+            return Mono.empty();
+        }
+        metrics.served(packageTag, archive.getSize());
+        ServerHttpResponse response = exchange.getResponse();
+        response.getHeaders().setContentLength(archive.getSize());
+        Path file = archive.getFile();
+        if (file != null && response instanceof ZeroCopyHttpOutputMessage) {
+            // zero-copy file region by Reactor Netty
+            return ((ZeroCopyHttpOutputMessage) response).writeWith(file, 0, archive.getSize());
+        }
+        return response.writeWith(archive.toDataBuffers(response.bufferFactory()));
+    }
+
+    /**
+     * packument MIME type if npm registry metadata is preferred by client, such as npm install with registry
+     *
+     * @param exchange exchange
+     * @return packument MIME type, null for tarball
+     */
+    @Nullable
+    private static MediaType packumentMediaType(ServerWebExchange exchange) {
+        List<MediaType> acceptedTypes = new ArrayList<>(exchange.getRequest().getHeaders().getAccept());
+        MediaType.sortBySpecificityAndQuality(acceptedTypes);
+        if (!acceptedTypes.isEmpty()) {
+            MediaType preferred = acceptedTypes.get(0);
+            if (preferred.equalsTypeAndSubtype(MediaType.APPLICATION_JSON) || preferred.equalsTypeAndSubtype(MediaType.parseMediaType(NPM_INSTALL_JSON))) {
+                return new MediaType(preferred.getType(), preferred.getSubtype());
+            }
+        }
+        return null;
+    }
+
+    private static String tarballFileName(NpmPackageArchive archive) {
+        String packageName = archive.getPackageName();
+        return packageName.substring(packageName.lastIndexOf('/') + 1) + "-" + archive.getVersion() + NpmArchiveFormat.TGZ.getFileExtension();
+    }
+
+    /**
+     * write packument with single version, and version manifest is package.json in tarball with dist.
+     * Manifest is parsed when archive is built, so nothing is read or parsed on event loop.
+     *
+     * @param packageName requested npm package name
+     * @param archive     tgz archive
+     * @param exchange    exchange
+     * @return packument JSON
+     */
+    private Mono<Void> writePackument(String packageName, NpmPackageArchive archive, ServerWebExchange exchange) {
+        if (exchange.checkNotModified(archive.getContentHash() + "-packument", archive.getLastModified())) {
+            metrics.notModified(archive.getPackageName());
+            return Mono.empty();
+        }
+        try {
+            URI uri = exchange.getRequest().getURI();
+            String tarballUrl = uri.getScheme() + "://" + uri.getRawAuthority() + "/npm/" + packageName + "/-/" + tarballFileName(archive);
+            Map<String, Object> manifest = new LinkedHashMap<>();
+            if (archive.getManifest() != null) {
+                manifest.putAll(archive.getManifest());
+            } else {
+                manifest.put("name", packageName);
+                manifest.put("version", archive.getVersion());
             }
+            Map<String, Object> dist = new LinkedHashMap<>();
+            dist.put("tarball", tarballUrl);
+            dist.put("integrity", archive.getIntegrity());
+            dist.put("shasum", archive.getShasum());
+            manifest.put("dist", dist);
+            String modified = archive.getLastModified().toString();
+            Map<String, Object> time = new LinkedHashMap<>();
+            time.put("modified", modified);
+            time.put(archive.getVersion(), modified);
+            Map<String, Object> packument = new LinkedHashMap<>();
+            packument.put("name", packageName);
+            packument.put("dist-tags", Collections.singletonMap("latest", archive.getVersion()));
+            packument.put("modified", modified);
+            packument.put("time", time);
+            packument.put("versions", Collections.singletonMap(archive.getVersion(), manifest));
+            byte[] content = objectMapper.writeValueAsBytes(packument);
+            exchange.getResponse().getHeaders().setContentLength(content.length);
+            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(content)));
+        } catch (IOException e) {
+            return Mono.error(e);
+        }
+    }
+
+    private static ClassPathResource prebuiltResource(RSocketExportedService exportedService) {
+        return new ClassPathResource(NpmPackageBuilder.prebuiltLocation(exportedService.getSimpleName()),
+                exportedService.getServiceClass().getClassLoader());
+    }
+
+    public Object getServiceBean(String rsocketServiceName) {
+        RSocketExportedService exportedService = serviceRegistry.findService(rsocketServiceName);
+        if (exportedService != null) {
+            return applicationContext.getBean(exportedService.getBeanName());
         }
         return null;
     }
 
-    public void addBinaryToTarGz(TarArchiveOutputStream tgzOut, String name, byte[] content) throws IOException {
-        TarArchiveEntry entry = new TarArchiveEntry(name);
-        entry.setSize(content.length);
-        tgzOut.putArchiveEntry(entry);
-        tgzOut.write(content);
-        tgzOut.closeArchiveEntry();
+    public NpmPackageArchive buildNpmPackage(String packageName, @Nullable String version, RSocketExportedService exportedService,
+                                             NpmArchiveFormat format) throws IOException {
+        //prebuilt at build time
+        ClassPathResource prebuilt = prebuiltResource(exportedService);
+        if (prebuilt.exists()) {
+            long start = System.nanoTime();
+            try (InputStream inputStream = prebuilt.getInputStream()) {
+                byte[] content = StreamUtils.copyToByteArray(inputStream);
+                String packageJson = NpmPackageBuilder.readPackageJson(content);
+                if (packageJson == null) {
+                    throw new IOException("package.json not found in " + prebuilt.getPath());
+                }
+                Map<String, Object> manifest = NpmPackageBuilder.parseManifest(packageJson);
+                String prebuiltVersion = String.valueOf(manifest.get("version"));
+                if (format == NpmArchiveFormat.TAR) {
+                    content = NpmPackageBuilder.gunzip(content);
+                }
+                return new NpmPackageArchive(packageName, prebuiltVersion, format, content, manifest, Instant.ofEpochMilli(prebuilt.lastModified()));
+            } finally {
+                metrics.recordStage(packageName, NpmExportMetrics.STAGE_PREBUILT, start);
+            }
+        }
+        return packageBuilder.build(packageName, version, exportedService.getServiceName(), exportedService.getStubModel(), format);
     }
 }
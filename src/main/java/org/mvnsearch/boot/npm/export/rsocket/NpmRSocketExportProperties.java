@@ -0,0 +1,273 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.zip.Deflater;
+
+/**
+ * npm rsocket export properties
+ *
+ * @author linux_china
+ */
+@ConfigurationProperties(prefix = "npm.export.rsocket")
+public class NpmRSocketExportProperties {
+    /**
+     * default data codec for generated stub, and it should match RSocket data MIME type
+     */
+    private NpmDataCodec codec = NpmDataCodec.JSON;
+    /**
+     * include connection.js with RSocket connection pool in npm package
+     */
+    private boolean connectionPool = false;
+    /**
+     * minify generated JavaScript code: strip comments, JSDoc and indentation
+     */
+    private boolean minify = false;
+    /**
+     * generated tarball cache
+     */
+    private final Cache cache = new Cache();
+    /**
+     * gzip parameters for generated tarball
+     */
+    private final Gzip gzip = new Gzip();
+    /**
+     * generate all packages when application is ready
+     */
+    private final WarmUp warmUp = new WarmUp();
+    /**
+     * latency histogram, in-flight requests and stream elements for exported RSocket routes
+     */
+    private final RouteMetrics routeMetrics = new RouteMetrics();
+    /**
+     * fire-and-forget batch route for methods with @NpmFireAndForgetBatch
+     */
+    private final Batch batch = new Batch();
+    /**
+     * on-disk store for generated tarballs
+     */
+    private final Store store = new Store();
+    /**
+     * dedicated scheduler for package generation
+     */
+    private final Build build = new Build();
+
+    public NpmDataCodec getCodec() {
+        return codec;
+    }
+
+    public void setCodec(NpmDataCodec codec) {
+        this.codec = codec;
+    }
+
+    public boolean isConnectionPool() {
+        return connectionPool;
+    }
+
+    public void setConnectionPool(boolean connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    public boolean isMinify() {
+        return minify;
+    }
+
+    public void setMinify(boolean minify) {
+        this.minify = minify;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Gzip getGzip() {
+        return gzip;
+    }
+
+    public WarmUp getWarmUp() {
+        return warmUp;
+    }
+
+    public RouteMetrics getRouteMetrics() {
+        return routeMetrics;
+    }
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    public Store getStore() {
+        return store;
+    }
+
+    public Build getBuild() {
+        return build;
+    }
+
+    public static class Cache {
+        /**
+         * max count of tarballs kept in memory, 0 to disable cache
+         */
+        private int maxSize = 64;
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    public static class Gzip {
+        /**
+         * compression level for on-demand builds, from 1(best speed) to 9(best compression), -1 for deflater default, and startup fails if out of -1 to 9
+         */
+        private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+        public int getCompressionLevel() {
+            return compressionLevel;
+        }
+
+        public void setCompressionLevel(int compressionLevel) {
+            this.compressionLevel = compressionLevel;
+        }
+    }
+
+    public static class WarmUp {
+        /**
+         * enable warm-up on ApplicationReadyEvent
+         */
+        private boolean enabled = false;
+        /**
+         * max count of packages generated in parallel
+         */
+        private int concurrency = 4;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+    }
+
+    public static class RouteMetrics {
+        /**
+         * enable RSocket responder interceptor for route metrics
+         */
+        private boolean enabled = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    public static class Batch {
+        /**
+         * register npm.export.batch route to unpack batches and dispatch items to target routes
+         */
+        private boolean enabled = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    public static class Store {
+        /**
+         * keep generated tarballs in local directory, and serve them from file after restart
+         */
+        private boolean enabled = false;
+        /**
+         * store directory
+         */
+        private String directory = System.getProperty("java.io.tmpdir") + File.separator + "npm-export-rsocket";
+        /**
+         * max count of index entries, and least recently used entries are removed with their tarballs
+         */
+        private int maxEntries = 256;
+        /**
+         * entries not used within max age are removed on startup and after new packages stored
+         */
+        private Duration maxAge = Duration.ofDays(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Duration getMaxAge() {
+            return maxAge;
+        }
+
+        public void setMaxAge(Duration maxAge) {
+            this.maxAge = maxAge;
+        }
+    }
+
+    public static class Build {
+        /**
+         * max count of threads to generate packages, and builds are never run on Netty event loop
+         */
+        private int threads = Runtime.getRuntime().availableProcessors();
+        /**
+         * max count of builds waiting for thread, and 503 is returned when queue is full
+         */
+        private int queueSize = 256;
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public void setQueueSize(int queueSize) {
+            this.queueSize = queueSize;
+        }
+    }
+}
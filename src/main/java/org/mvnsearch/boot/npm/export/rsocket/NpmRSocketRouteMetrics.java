@@ -0,0 +1,211 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.buffer.ByteBuf;
+import io.rsocket.ConnectionSetupPayload;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.RSocketFactory;
+import io.rsocket.ResponderRSocket;
+import io.rsocket.SocketAcceptor;
+import io.rsocket.frame.FrameType;
+import io.rsocket.metadata.CompositeMetadata;
+import io.rsocket.metadata.RoutingMetadata;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.plugins.SocketAcceptorInterceptor;
+import io.rsocket.util.RSocketProxy;
+import org.jetbrains.annotations.Nullable;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.rsocket.server.ServerRSocketFactoryProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RSocket responder metrics for exported routes: latency histogram, in-flight requests and stream elements,
+ * tagged by route and frame type. Requests to routes not exported are not measured.
+ *
+ * @author linux_china
+ */
+public class NpmRSocketRouteMetrics implements ServerRSocketFactoryProcessor, SocketAcceptorInterceptor {
+    public static final String ROUTE_TIMER = "npm.export.rsocket.route";
+    public static final String IN_FLIGHT_GAUGE = "npm.export.rsocket.route.in.flight";
+    public static final String ELEMENTS_COUNTER = "npm.export.rsocket.route.elements";
+    private final RSocketExportedServiceRegistry serviceRegistry;
+    private final MeterRegistry meterRegistry;
+    /**
+     * meters registered once for route and frame type, and no registry lookup on request path
+     */
+    private final Map<String, RouteMeters> routeMeters = new ConcurrentHashMap<>();
+
+    public NpmRSocketRouteMetrics(RSocketExportedServiceRegistry serviceRegistry, MeterRegistry meterRegistry) {
+        this.serviceRegistry = serviceRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public RSocketFactory.ServerRSocketFactory process(RSocketFactory.ServerRSocketFactory factory) {
+        return factory.addSocketAcceptorPlugin(this);
+    }
+
+    @Override
+    public SocketAcceptor apply(SocketAcceptor socketAcceptor) {
+        return (setup, sendingSocket) -> socketAcceptor.accept(setup, sendingSocket)
+                .map(responder -> new MeteredRSocket(responder, setup.metadataMimeType()));
+    }
+
+    /**
+     * route from routing metadata, or composite metadata with routing entry
+     *
+     * @param payload          payload
+     * @param metadataMimeType metadata MIME type from {@link ConnectionSetupPayload}
+     * @return route, null if absent or malformed
+     */
+    @Nullable
+    public static String route(Payload payload, String metadataMimeType) {
+        if (!payload.hasMetadata()) {
+            return null;
+        }
+        try {
+            ByteBuf metadata = payload.sliceMetadata();
+            if (WellKnownMimeType.MESSAGE_RSOCKET_ROUTING.getString().equals(metadataMimeType)) {
+                return firstTag(new RoutingMetadata(metadata));
+            } else if (WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString().equals(metadataMimeType)) {
+                for (CompositeMetadata.Entry entry : new CompositeMetadata(metadata, false)) {
+                    if (WellKnownMimeType.MESSAGE_RSOCKET_ROUTING.getString().equals(entry.getMimeType())) {
+                        return firstTag(new RoutingMetadata(entry.getContent()));
+                    }
+                }
+            }
+        } catch (Exception ignore) {
+            // malformed metadata is rejected by Spring messaging handler
+        }
+        return null;
+    }
+
+    @Nullable
+    private static String firstTag(RoutingMetadata routingMetadata) {
+        Iterator<String> tags = routingMetadata.iterator();
+        return tags.hasNext() ? tags.next() : null;
+    }
+
+    private <T> Flux<T> measure(String route, FrameType frameType, Flux<T> responses) {
+        RouteMeters meters = routeMeters(route, frameType);
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            meters.inFlight.incrementAndGet();
+            Flux<T> flux = meters.elements == null ? responses : responses.doOnNext(payload -> meters.elements.increment());
+            return flux.doFinally(signalType -> {
+                meters.inFlight.decrementAndGet();
+                meters.timer(outcome(signalType)).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            });
+        });
+    }
+
+    private RouteMeters routeMeters(String route, FrameType frameType) {
+        return routeMeters.computeIfAbsent(route + " " + frameType.name(), key -> new RouteMeters(route, frameType));
+    }
+
+    private static String outcome(SignalType signalType) {
+        if (signalType == SignalType.ON_ERROR) {
+            return "error";
+        } else if (signalType == SignalType.CANCEL) {
+            return "cancel";
+        }
+        return "success";
+    }
+
+    /**
+     * meters of route and frame type, and latency timer is registered on first request with the outcome
+     */
+    private class RouteMeters {
+        private final String route;
+        private final FrameType frameType;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        @Nullable
+        private final Counter elements;
+        private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+        RouteMeters(String route, FrameType frameType) {
+            this.route = route;
+            this.frameType = frameType;
+            Gauge.builder(IN_FLIGHT_GAUGE, inFlight, AtomicInteger::get)
+                    .description("in-flight requests of exported RSocket routes")
+                    .tag("route", route)
+                    .tag("frame", frameType.name())
+                    .register(meterRegistry);
+            this.elements = frameType == FrameType.REQUEST_STREAM || frameType == FrameType.REQUEST_CHANNEL
+                    ? Counter.builder(ELEMENTS_COUNTER)
+                    .description("stream elements sent by exported RSocket routes")
+                    .tag("route", route)
+                    .tag("frame", frameType.name())
+                    .register(meterRegistry) : null;
+        }
+
+        Timer timer(String outcome) {
+            return timers.computeIfAbsent(outcome, key -> Timer.builder(ROUTE_TIMER)
+                    .description("exported RSocket route latency, until completion for streams")
+                    .tag("route", route)
+                    .tag("frame", frameType.name())
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * responder RSocket with metrics, and route is parsed before payload released by delegate
+     */
+    private class MeteredRSocket extends RSocketProxy implements ResponderRSocket {
+        private final String metadataMimeType;
+
+        MeteredRSocket(RSocket source, String metadataMimeType) {
+            super(source);
+            this.metadataMimeType = metadataMimeType;
+        }
+
+        @Nullable
+        private String exportedRoute(Payload payload) {
+            String route = route(payload, metadataMimeType);
+            return route != null && serviceRegistry.isExportedRoute(route) ? route : null;
+        }
+
+        @Override
+        public Mono<Void> fireAndForget(Payload payload) {
+            String route = exportedRoute(payload);
+            Mono<Void> result = super.fireAndForget(payload);
+            return route == null ? result : measure(route, FrameType.REQUEST_FNF, result.flux()).then();
+        }
+
+        @Override
+        public Mono<Payload> requestResponse(Payload payload) {
+            String route = exportedRoute(payload);
+            Mono<Payload> result = super.requestResponse(payload);
+            return route == null ? result : measure(route, FrameType.REQUEST_RESPONSE, result.flux()).singleOrEmpty();
+        }
+
+        @Override
+        public Flux<Payload> requestStream(Payload payload) {
+            String route = exportedRoute(payload);
+            Flux<Payload> result = super.requestStream(payload);
+            return route == null ? result : measure(route, FrameType.REQUEST_STREAM, result);
+        }
+
+        @Override
+        public Flux<Payload> requestChannel(Payload payload, Publisher<Payload> payloads) {
+            String route = exportedRoute(payload);
+            Flux<Payload> result = source instanceof ResponderRSocket
+                    ? ((ResponderRSocket) source).requestChannel(payload, payloads) : source.requestChannel(payloads);
+            return route == null ? result : measure(route, FrameType.REQUEST_CHANNEL, result);
+        }
+    }
+}
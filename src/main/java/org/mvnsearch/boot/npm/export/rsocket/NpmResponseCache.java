@@ -0,0 +1,24 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import java.lang.annotation.*;
+
+/**
+ * client side response cache for requestResponse methods in generated JavaScript stub:
+ * concurrent calls with same arguments share one in-flight request, and results are kept in a bounded LRU cache with TTL
+ *
+ * @author linux_china
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface NpmResponseCache {
+    /**
+     * time to live in milliseconds, 0 for in-flight deduplication only
+     */
+    long ttl() default 60000;
+
+    /**
+     * max count of cached results
+     */
+    int maxSize() default 256;
+}
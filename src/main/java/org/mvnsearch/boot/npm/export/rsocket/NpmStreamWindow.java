@@ -0,0 +1,24 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import java.lang.annotation.*;
+
+/**
+ * demand window for requestStream and requestChannel methods in generated JavaScript stub:
+ * request N elements first, then refill demand when outstanding elements drop to low-water mark
+ *
+ * @author linux_china
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface NpmStreamWindow {
+    /**
+     * request N for every window
+     */
+    int value() default 256;
+
+    /**
+     * outstanding elements to refill demand, default is a quarter of window size
+     */
+    int lowWaterMark() default -1;
+}
@@ -0,0 +1,80 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import org.jetbrains.annotations.Nullable;
+import org.mvnsearch.boot.npm.export.rsocket.generator.JsRSocketStubMethod;
+import org.mvnsearch.boot.npm.export.rsocket.generator.RSocketServiceStubModel;
+
+import java.util.List;
+
+/**
+ * exported RSocket service: @MessageMapping class with its stub metadata
+ *
+ * @author linux_china
+ */
+public class RSocketExportedService {
+    /**
+     * full service name from @MessageMapping, such as org.mvnsearch.user.AccountService
+     */
+    private final String serviceName;
+    /**
+     * service simple name, the last part of npm package name
+     */
+    private final String simpleName;
+    private final String beanName;
+    private final Class<?> serviceClass;
+    @Nullable
+    private final NpmPackage npmPackage;
+    private final RSocketServiceStubModel stubModel;
+
+    public RSocketExportedService(String serviceName, String beanName, Class<?> serviceClass,
+                                  @Nullable NpmPackage npmPackage, RSocketServiceStubModel stubModel) {
+        this.serviceName = serviceName;
+        this.simpleName = serviceName.substring(serviceName.lastIndexOf('.') + 1);
+        this.beanName = beanName;
+        this.serviceClass = serviceClass;
+        this.npmPackage = npmPackage;
+        this.stubModel = stubModel;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public String getSimpleName() {
+        return simpleName;
+    }
+
+    public String getBeanName() {
+        return beanName;
+    }
+
+    public Class<?> getServiceClass() {
+        return serviceClass;
+    }
+
+    @Nullable
+    public NpmPackage getNpmPackage() {
+        return npmPackage;
+    }
+
+    /**
+     * canonical npm package name: @NpmPackage value, or @{appName}/{simpleName}
+     *
+     * @param appName Spring Boot application name
+     * @return npm package name
+     */
+    public String getPackageName(String appName) {
+        if (npmPackage != null && !npmPackage.value().isEmpty()) {
+            return npmPackage.value();
+        }
+        return "@" + appName + "/" + simpleName;
+    }
+
+    public RSocketServiceStubModel getStubModel() {
+        return stubModel;
+    }
+
+    public List<JsRSocketStubMethod> getStubMethods() {
+        return stubModel.getStubMethods();
+    }
+}
@@ -0,0 +1,75 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import org.jetbrains.annotations.Nullable;
+import org.mvnsearch.boot.npm.export.rsocket.generator.JsRSocketStubMethod;
+import org.mvnsearch.boot.npm.export.rsocket.generator.RSocketServiceStubModel;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.util.ClassUtils;
+
+import java.util.*;
+
+/**
+ * registry for exported RSocket services, built once on context refresh without instantiating lazy beans
+ *
+ * @author linux_china
+ */
+public class RSocketExportedServiceRegistry implements SmartInitializingSingleton {
+    @Autowired
+    private ApplicationContext applicationContext;
+    /**
+     * services with simple name as key
+     */
+    private volatile Map<String, RSocketExportedService> services = Collections.emptyMap();
+    /**
+     * routes of all exported methods, such as org.mvnsearch.user.AccountService.findById
+     */
+    private volatile Set<String> routes = Collections.emptySet();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        refresh();
+    }
+
+    public void refresh() {
+        Map<String, RSocketExportedService> services = new LinkedHashMap<>();
+        for (String beanName : applicationContext.getBeanDefinitionNames()) {
+            Class<?> beanType = applicationContext.getType(beanName, false);
+            if (beanType == null) {
+                continue;
+            }
+            Class<?> serviceClass = ClassUtils.getUserClass(beanType);
+            MessageMapping messageMapping = AnnotationUtils.findAnnotation(serviceClass, MessageMapping.class);
+            if (messageMapping != null && messageMapping.value().length > 0) {
+                NpmPackage npmPackage = AnnotationUtils.findAnnotation(serviceClass, NpmPackage.class);
+                RSocketExportedService service = new RSocketExportedService(messageMapping.value()[0], beanName, serviceClass,
+                        npmPackage, RSocketServiceStubModel.of(serviceClass));
+                services.putIfAbsent(service.getSimpleName(), service);
+            }
+        }
+        Set<String> routes = new HashSet<>();
+        for (RSocketExportedService service : services.values()) {
+            for (JsRSocketStubMethod stubMethod : service.getStubMethods()) {
+                routes.add(service.getServiceName() + "." + stubMethod.getName());
+            }
+        }
+        this.services = services;
+        this.routes = routes;
+    }
+
+    @Nullable
+    public RSocketExportedService findService(String simpleName) {
+        return services.get(simpleName);
+    }
+
+    public Collection<RSocketExportedService> getServices() {
+        return services.values();
+    }
+
+    public boolean isExportedRoute(String route) {
+        return routes.contains(route);
+    }
+}
@@ -1,20 +1,14 @@
 package org.mvnsearch.boot.npm.export.rsocket.generator;
 
-import io.rsocket.frame.FrameType;
-import org.springframework.core.annotation.AnnotationUtils;
-import org.springframework.messaging.handler.annotation.MessageMapping;
-import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
-
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
-import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * Base generator
@@ -22,6 +16,17 @@ import java.util.stream.Collectors;
  * @author linux_china
  */
 public class BaseGenerator {
+    /**
+     * module level identifiers and JavaScript reserved words, and methods with these names are not exported as functions
+     */
+    private static final Set<String> MODULE_IDENTIFIERS = new HashSet<>(Arrays.asList(
+            "Observable", "Flowable", "encodeAndAddWellKnownMetadata", "MESSAGE_RSOCKET_ROUTING", "ReactiveSocket", "cbor",
+            "defaultStreamWindow", "requestMetadata", "toJsonBuffer", "windowedSubscriber", "cancelSubscription",
+            "dataMimeType", "encodeData", "decodeData", "ResponseCache", "routeMetadataCache", "responseCaches",
+            "fireAndForgetBatches", "batchRouteMetadata", "service", "setPromiseRSocket", "setRSocketPool",
+            "setStreamWindow", "clearResponseCache", "flushBatches",
+            "arguments", "await", "debugger", "delete", "eval", "export", "function", "in", "let", "typeof", "var", "with", "yield"));
+    protected final RSocketServiceStubModel stubModel;
     protected final Class<?> serviceClassImpl;
     protected final String jsClassName;
     protected final List<Method> requestMethods;
@@ -29,85 +34,45 @@ public class BaseGenerator {
     /**
      * javabean for typeDef from @Schema implementation
      */
-    protected final Map<Class<?>, String> javaBeanTypeDefMap = new HashMap<>();
+    protected final Map<Class<?>, String> javaBeanTypeDefMap = new LinkedHashMap<>();
+
     public BaseGenerator(Class<?> serviceClassImpl) {
-        this.serviceClassImpl = serviceClassImpl;
-        this.requestMethods = Arrays.stream(this.serviceClassImpl.getMethods())
-                .filter(method -> AnnotationUtils.findAnnotation(method, MessageMapping.class) != null)
-                .collect(Collectors.toList());
-        this.jsHttpStubMethods = this.requestMethods.stream()
-                .map(this::generateMethodStub)
-                .collect(Collectors.toList());
-        this.jsClassName = serviceClassImpl.getSimpleName().replace("Impl", "");
+        this(RSocketServiceStubModel.of(serviceClassImpl));
     }
 
-    public JsRSocketStubMethod generateMethodStub(Method method) {
-        JsRSocketStubMethod stubMethod = new JsRSocketStubMethod();
-        stubMethod.setName(method.getName());
-        //@deprecated
-        Deprecated deprecated = method.getAnnotation(Deprecated.class);
-        if (deprecated != null) {
-            stubMethod.setDeprecated(true);
-        }
-        //parameters
-        Parameter[] parameters = method.getParameters();
-        if (parameters.length > 0) {
-            for (Parameter parameter : parameters) {
-                JsParam jsParam = new JsParam();
-                jsParam.setName(parameter.getName());
-                jsParam.setType(parameter.getType());
-                stubMethod.addParam(jsParam);
-            }
-        }
-        //return type
-        Type genericReturnType = method.getGenericReturnType();
-        stubMethod.setReturnType(parseInferredClass(genericReturnType));
-        //frame type
-        //bi direction check: param's type is Flux for 1st param or 2nd param
-        int paramCount = method.getParameterCount();
-        FrameType rsocketFrameType = null;
-        if (paramCount == 1 && method.getParameterTypes()[0].equals(Flux.class)) {
-            rsocketFrameType = FrameType.REQUEST_CHANNEL;
-        } else if (paramCount == 2 && method.getParameterTypes()[1].equals(Flux.class)) {
-            rsocketFrameType = FrameType.REQUEST_CHANNEL;
-        }
-        if (rsocketFrameType == FrameType.REQUEST_CHANNEL) {
-            if (method.getReturnType().isAssignableFrom(Mono.class)) {
-                stubMethod.setMonoChannel(true);
-            }
-        }
-        if (rsocketFrameType == null) {
-            Class<?> returnType = method.getReturnType();
-            // fire_and_forget
-            if (returnType.equals(Void.TYPE) || (returnType.equals(Mono.class) && stubMethod.getReturnType().equals(Void.TYPE))) {
-                rsocketFrameType = FrameType.REQUEST_FNF;
-            } else if (returnType.equals(Flux.class)) {  // request/stream
-                rsocketFrameType = FrameType.REQUEST_STREAM;
-            } else { //request/response
-                rsocketFrameType = FrameType.REQUEST_RESPONSE;
+    public BaseGenerator(RSocketServiceStubModel stubModel) {
+        this.stubModel = stubModel;
+        this.serviceClassImpl = stubModel.getServiceClass();
+        this.requestMethods = stubModel.getRequestMethods();
+        this.jsHttpStubMethods = stubModel.getStubMethods();
+        this.jsClassName = stubModel.getJsClassName();
+        this.javaBeanTypeDefMap.putAll(stubModel.getTypeDefs());
+    }
+
+    public List<JsRSocketStubMethod> getStubMethods() {
+        return jsHttpStubMethods;
+    }
+
+    /**
+     * stub methods exported as module level functions, and the last one wins for overloaded methods
+     *
+     * @return exported stub methods
+     */
+    public Collection<JsRSocketStubMethod> getExportedStubMethods() {
+        Map<String, JsRSocketStubMethod> exportedMethods = new LinkedHashMap<>();
+        for (JsRSocketStubMethod stubMethod : jsHttpStubMethods) {
+            if (!MODULE_IDENTIFIERS.contains(stubMethod.getName()) && !stubMethod.getName().equals(jsClassName)) {
+                exportedMethods.put(stubMethod.getName(), stubMethod);
             }
         }
-        stubMethod.setFrameType(rsocketFrameType);
-        return stubMethod;
+        return exportedMethods.values();
+    }
+
+    public JsRSocketStubMethod generateMethodStub(Method method) {
+        return RSocketServiceStubModel.generateMethodStub(method);
     }
 
     public static Class<?> parseInferredClass(Type genericType) {
-        Class<?> inferredClass = null;
-        if (genericType instanceof ParameterizedType) {
-            ParameterizedType type = (ParameterizedType) genericType;
-            Type[] typeArguments = type.getActualTypeArguments();
-            if (typeArguments.length > 0) {
-                final Type typeArgument = typeArguments[0];
-                if (typeArgument instanceof ParameterizedType) {
-                    inferredClass = (Class<?>) ((ParameterizedType) typeArgument).getActualTypeArguments()[0];
-                } else {
-                    inferredClass = (Class<?>) typeArgument;
-                }
-            }
-        }
-        if (inferredClass == null && genericType instanceof Class) {
-            inferredClass = (Class<?>) genericType;
-        }
-        return inferredClass;
+        return RSocketServiceStubModel.parseInferredClass(genericType);
     }
 }
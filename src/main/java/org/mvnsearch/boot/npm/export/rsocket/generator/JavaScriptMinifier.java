@@ -0,0 +1,61 @@
+package org.mvnsearch.boot.npm.export.rsocket.generator;
+
+/**
+ * JavaScript minifier for generated code: strip comments, indentation and blank lines.
+ * Line breaks are kept to avoid automatic semicolon insertion issues, and string/template literals are untouched.
+ *
+ * @author linux_china
+ */
+public class JavaScriptMinifier {
+    private static final String PURE_ANNOTATION = "/*#__PURE__*/";
+
+    public static String minify(String jsCode) {
+        StringBuilder builder = new StringBuilder(jsCode.length() / 2);
+        StringBuilder line = new StringBuilder();
+        int length = jsCode.length();
+        int i = 0;
+        while (i < length) {
+            char c = jsCode.charAt(i);
+            char next = i + 1 < length ? jsCode.charAt(i + 1) : 0;
+            if (c == '"' || c == '\'' || c == '`') {
+                int end = i + 1;
+                while (end < length && jsCode.charAt(end) != c) {
+                    if (jsCode.charAt(end) == '\\') {
+                        end++;
+                    }
+                    end++;
+                }
+                end = Math.min(end + 1, length);
+                line.append(jsCode, i, end);
+                i = end;
+            } else if (c == '/' && next == '/') {
+                while (i < length && jsCode.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (jsCode.startsWith(PURE_ANNOTATION, i)) {
+                // annotation for bundlers to drop unused calls
+                line.append(PURE_ANNOTATION);
+                i += PURE_ANNOTATION.length();
+            } else if (c == '/' && next == '*') {
+                int end = jsCode.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (c == '\n') {
+                appendLine(builder, line);
+                i++;
+            } else {
+                line.append(c);
+                i++;
+            }
+        }
+        appendLine(builder, line);
+        return builder.toString();
+    }
+
+    private static void appendLine(StringBuilder builder, StringBuilder line) {
+        String trimmed = line.toString().trim();
+        if (!trimmed.isEmpty()) {
+            builder.append(trimmed).append('\n');
+        }
+        line.setLength(0);
+    }
+}
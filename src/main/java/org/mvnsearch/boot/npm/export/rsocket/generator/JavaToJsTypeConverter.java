@@ -15,12 +15,26 @@ public interface JavaToJsTypeConverter {
             Double.class, double.class,
             Byte.class, byte.class);
     List<String> jsTypes = Arrays.asList("string", "boolean", "number", "Array", "Object");
+    /**
+     * memoized js type for class
+     */
+    ClassValue<String> JS_TYPES = new ClassValue<String>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return JavaToJsTypeConverter.computeJsType(type);
+        }
+    };
 
     default String toJsType(Class<?> type) {
+        return JS_TYPES.get(type);
+    }
+
+    static String computeJsType(Class<?> type) {
         if (type.isAssignableFrom(String.class)
                 || type.isAssignableFrom(Date.class)
                 || type.getCanonicalName().startsWith("java.time.")
-                || type.isAssignableFrom(UUID.class)) {
+                || type.isAssignableFrom(UUID.class)
+                || type.isEnum()) {
             return "string";
         } else if (type.isAssignableFrom(Boolean.class) || type.isAssignableFrom(boolean.class)) {
             return "boolean";
@@ -34,7 +48,7 @@ public interface JavaToJsTypeConverter {
         } else if (type.isAssignableFrom(Map.class)) {
             return "Object";
         } else {
-            return type.getCanonicalName().replaceAll("\\.", "_");
+            return type.getCanonicalName().replace('.', '_');
         }
     }
 
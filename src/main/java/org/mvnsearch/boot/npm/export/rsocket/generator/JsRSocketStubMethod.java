@@ -23,6 +23,21 @@ public class JsRSocketStubMethod implements JavaToJsTypeConverter {
     private boolean deprecated = false;
     private FrameType frameType;
     private boolean monoChannel;
+    /**
+     * demand window size for stream, 0 means service default
+     */
+    private int streamWindowSize;
+    private int streamLowWaterMark = -1;
+    /**
+     * client side response cache ttl in milliseconds for requestResponse, -1 means no cache
+     */
+    private long responseCacheTtl = -1;
+    private int responseCacheMaxSize;
+    /**
+     * max count of buffered fireAndForget calls in batch, 0 means no batching
+     */
+    private int batchMaxSize;
+    private long batchMaxDelay;
 
     public String getName() {
         return name;
@@ -123,4 +138,60 @@ public class JsRSocketStubMethod implements JavaToJsTypeConverter {
     public void setMonoChannel(boolean monoChannel) {
         this.monoChannel = monoChannel;
     }
+
+    public int getStreamWindowSize() {
+        return streamWindowSize;
+    }
+
+    public void setStreamWindowSize(int streamWindowSize) {
+        this.streamWindowSize = streamWindowSize;
+    }
+
+    public int getStreamLowWaterMark() {
+        return streamLowWaterMark;
+    }
+
+    public void setStreamLowWaterMark(int streamLowWaterMark) {
+        this.streamLowWaterMark = streamLowWaterMark;
+    }
+
+    public long getResponseCacheTtl() {
+        return responseCacheTtl;
+    }
+
+    public void setResponseCacheTtl(long responseCacheTtl) {
+        this.responseCacheTtl = responseCacheTtl;
+    }
+
+    public int getResponseCacheMaxSize() {
+        return responseCacheMaxSize;
+    }
+
+    public void setResponseCacheMaxSize(int responseCacheMaxSize) {
+        this.responseCacheMaxSize = responseCacheMaxSize;
+    }
+
+    public boolean isResponseCached() {
+        return frameType == FrameType.REQUEST_RESPONSE && responseCacheTtl >= 0;
+    }
+
+    public int getBatchMaxSize() {
+        return batchMaxSize;
+    }
+
+    public void setBatchMaxSize(int batchMaxSize) {
+        this.batchMaxSize = batchMaxSize;
+    }
+
+    public long getBatchMaxDelay() {
+        return batchMaxDelay;
+    }
+
+    public void setBatchMaxDelay(long batchMaxDelay) {
+        this.batchMaxDelay = batchMaxDelay;
+    }
+
+    public boolean isBatched() {
+        return frameType == FrameType.REQUEST_FNF && batchMaxSize > 0 && params.size() <= 1;
+    }
 }
@@ -0,0 +1,17 @@
+package org.mvnsearch.boot.npm.export.rsocket.generator;
+
+/**
+ * JavaScript module format for generated code
+ *
+ * @author linux_china
+ */
+public enum ModuleFormat {
+    /**
+     * CommonJS: require() and module.exports
+     */
+    COMMONJS,
+    /**
+     * ES module: import and export, tree-shakable by bundlers
+     */
+    ESM
+}
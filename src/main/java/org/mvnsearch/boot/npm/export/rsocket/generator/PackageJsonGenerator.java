@@ -3,6 +3,7 @@ package org.mvnsearch.boot.npm.export.rsocket.generator;
 import org.intellij.lang.annotations.Language;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -16,7 +17,7 @@ public class PackageJsonGenerator {
             "  \"name\": \"$packageName\",\n" +
             "  \"version\": \"$version\",\n" +
             "  \"main\": \"index.js\",\n" +
-            "  \"types\": \"index.d.ts\",\n" +
+            "  \"types\": \"index.d.ts\",$extraFields\n" +
             "  \"description\": \"$description\",\n" +
             "  \"dependencies\": {\n" +
             "    \"fbjs\": \"^1.0.0\",\n" +
@@ -24,10 +25,12 @@ public class PackageJsonGenerator {
             "    \"rsocket-flowable\": \"^0.0.14\",\n" +
             "    \"rsocket-types\": \"^0.0.16\",\n" +
             "    \"rsocket-websocket-client\": \"0.0.19\",\n" +
-            "    \"rxjs\": \"^6.5.4\"\n" +
+            "    \"rxjs\": \"^6.5.4\"$extraDependencies\n" +
             "  }\n" +
             "}\n";
     private Map<String, String> context = new HashMap<>();
+    private Map<String, String> extraDependencies = new LinkedHashMap<>();
+    private Map<String, String> extraFields = new LinkedHashMap<>();
 
     public PackageJsonGenerator(String packageName, String version) {
         this.context.put("packageName", packageName);
@@ -39,8 +42,35 @@ public class PackageJsonGenerator {
         return this;
     }
 
+    public PackageJsonGenerator addDependency(String name, String version) {
+        this.extraDependencies.put(name, version);
+        return this;
+    }
+
+    /**
+     * add top level field
+     *
+     * @param name      field name
+     * @param jsonValue field value in JSON
+     * @return this
+     */
+    public PackageJsonGenerator addField(String name, String jsonValue) {
+        this.extraFields.put(name, jsonValue);
+        return this;
+    }
+
     public String generate() {
         String result = templateText;
+        StringBuilder fields = new StringBuilder();
+        for (Map.Entry<String, String> entry : extraFields.entrySet()) {
+            fields.append("\n  \"").append(entry.getKey()).append("\": ").append(entry.getValue()).append(",");
+        }
+        result = result.replace("$extraFields", fields.toString());
+        StringBuilder dependencies = new StringBuilder();
+        for (Map.Entry<String, String> entry : extraDependencies.entrySet()) {
+            dependencies.append(",\n    \"").append(entry.getKey()).append("\": \"").append(entry.getValue()).append("\"");
+        }
+        result = result.replace("$extraDependencies", dependencies.toString());
         for (Map.Entry<String, String> entry : context.entrySet()) {
             result = result.replace("$" + entry.getKey(), entry.getValue());
         }
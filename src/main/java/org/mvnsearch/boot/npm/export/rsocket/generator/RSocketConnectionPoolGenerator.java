@@ -0,0 +1,251 @@
+package org.mvnsearch.boot.npm.export.rsocket.generator;
+
+import org.intellij.lang.annotations.Language;
+import org.mvnsearch.boot.npm.export.rsocket.NpmDataCodec;
+
+/**
+ * RSocket connection pool generator: connection.js and connection.d.ts with pooled connections,
+ * round-robin or least-pending selection, reconnect and resume token support
+ *
+ * @author linux_china
+ */
+public class RSocketConnectionPoolGenerator {
+
+    public String generate(NpmDataCodec dataCodec) {
+        @Language("JavaScript")
+        String connectionJs = "// Don't edit this file because it was generated by Spring Boot App!!!\n" +
+                "const {BufferEncoders, MESSAGE_RSOCKET_COMPOSITE_METADATA, RSocketClient, RSocketResumableTransport} = require('rsocket-core');\n" +
+                "const RSocketWebSocketClient = require('rsocket-websocket-client').default;\n" +
+                "\n" +
+                "const isBrowser = new Function('try {return this===window;}catch(e){ return false;}');\n" +
+                "\n" +
+                "/**\n" +
+                " * construct web socket transport\n" +
+                " * @param {string} url\n" +
+                " * @return {RSocketWebSocketClient}\n" +
+                " */\n" +
+                "function webSocketTransport(url) {\n" +
+                "    const WebSocketImpl = isBrowser() ? WebSocket : require('ws');\n" +
+                "    return new RSocketWebSocketClient({url: url, wsCreator: uri => new WebSocketImpl(uri)}, BufferEncoders);\n" +
+                "}\n" +
+                "\n" +
+                "/**\n" +
+                " * random resume token\n" +
+                " * @return {Buffer}\n" +
+                " */\n" +
+                "function resumeToken() {\n" +
+                "    if (typeof crypto !== 'undefined' && crypto.getRandomValues) {\n" +
+                "        return Buffer.from(crypto.getRandomValues(new Uint8Array(16)));\n" +
+                "    }\n" +
+                "    return require('crypto').randomBytes(16);\n" +
+                "}\n" +
+                "\n" +
+                "/**\n" +
+                " * track in-flight requests of connection until terminal signal or cancel\n" +
+                " * @param {Object} publisher Single or Flowable\n" +
+                " * @param {{pending: number}} connection\n" +
+                " * @return {Object}\n" +
+                " */\n" +
+                "function trackPending(publisher, connection) {\n" +
+                "    return {\n" +
+                "        subscribe(subscriber) {\n" +
+                "            let released = false;\n" +
+                "            const release = () => {\n" +
+                "                if (!released) {\n" +
+                "                    released = true;\n" +
+                "                    connection.pending--;\n" +
+                "                }\n" +
+                "            };\n" +
+                "            connection.pending++;\n" +
+                "            publisher.subscribe(Object.assign({}, subscriber, {\n" +
+                "                onComplete: value => {\n" +
+                "                    release();\n" +
+                "                    subscriber.onComplete && subscriber.onComplete(value);\n" +
+                "                },\n" +
+                "                onError: error => {\n" +
+                "                    release();\n" +
+                "                    subscriber.onError && subscriber.onError(error);\n" +
+                "                },\n" +
+                "                onSubscribe: subscription => {\n" +
+                "                    let tracked = subscription;\n" +
+                "                    if (typeof subscription === 'function') {\n" +
+                "                        // Single: cancel callback\n" +
+                "                        tracked = () => {\n" +
+                "                            release();\n" +
+                "                            subscription();\n" +
+                "                        };\n" +
+                "                    } else if (subscription) {\n" +
+                "                        tracked = {\n" +
+                "                            request: n => subscription.request(n),\n" +
+                "                            cancel: () => {\n" +
+                "                                release();\n" +
+                "                                subscription.cancel();\n" +
+                "                            }\n" +
+                "                        };\n" +
+                "                    }\n" +
+                "                    subscriber.onSubscribe && subscriber.onSubscribe(tracked);\n" +
+                "                }\n" +
+                "            }));\n" +
+                "        }\n" +
+                "    };\n" +
+                "}\n" +
+                "\n" +
+                "/**\n" +
+                " * RSocket connection pool: N connections with round-robin or least-pending selection,\n" +
+                " * closed connections are re-established on next acquire, and resumption is optional\n" +
+                " */\n" +
+                "class RSocketConnectionPool {\n" +
+                "    /**\n" +
+                "     * @param {Object} options\n" +
+                "     * @param {string} options.url RSocket websocket url, such as ws://localhost:8080/rsocket\n" +
+                "     * @param {number} [options.size=4] count of connections\n" +
+                "     * @param {string} [options.strategy='round-robin'] 'round-robin' or 'least-pending'\n" +
+                "     * @param {boolean} [options.resume=false] enable resumption, and resume should be enabled on server too\n" +
+                "     * @param {number} [options.sessionDurationSeconds=60] resume session duration\n" +
+                "     * @param {number} [options.keepAlive=60000]\n" +
+                "     * @param {number} [options.lifetime=180000]\n" +
+                "     * @param {string} [options.dataMimeType]\n" +
+                "     * @param {function(string): Object} [options.transportFactory] transport factory for url, default is websocket\n" +
+                "     */\n" +
+                "    constructor(options) {\n" +
+                "        this.options = Object.assign({\n" +
+                "            size: 4,\n" +
+                "            strategy: 'round-robin',\n" +
+                "            resume: false,\n" +
+                "            sessionDurationSeconds: 60,\n" +
+                "            keepAlive: 60000,\n" +
+                "            lifetime: 180000,\n" +
+                "            dataMimeType: '$dataMimeType',\n" +
+                "            transportFactory: webSocketTransport\n" +
+                "        }, options);\n" +
+                "        this.connections = [];\n" +
+                "        for (let i = 0; i < Math.max(1, this.options.size); i++) {\n" +
+                "            this.connections.push({promise: null, client: null, pending: 0});\n" +
+                "        }\n" +
+                "        this.next = 0;\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * acquire RSocket from pool\n" +
+                "     * @return {Promise<ReactiveSocket>}\n" +
+                "     */\n" +
+                "    acquire() {\n" +
+                "        const connection = this.select();\n" +
+                "        if (connection.promise == null) {\n" +
+                "            connection.promise = this.connect(connection);\n" +
+                "        }\n" +
+                "        return connection.promise;\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * select connection by strategy\n" +
+                "     * @return {Object}\n" +
+                "     * @private\n" +
+                "     */\n" +
+                "    select() {\n" +
+                "        if (this.options.strategy === 'least-pending') {\n" +
+                "            return this.connections.reduce((selected, connection) => connection.pending < selected.pending ? connection : selected);\n" +
+                "        }\n" +
+                "        const connection = this.connections[this.next];\n" +
+                "        this.next = (this.next + 1) % this.connections.length;\n" +
+                "        return connection;\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * connect and wrap RSocket to track pending requests\n" +
+                "     * @param {Object} connection\n" +
+                "     * @return {Promise<ReactiveSocket>}\n" +
+                "     * @private\n" +
+                "     */\n" +
+                "    connect(connection) {\n" +
+                "        const options = this.options;\n" +
+                "        let transport = options.transportFactory(options.url);\n" +
+                "        if (options.resume) {\n" +
+                "            transport = new RSocketResumableTransport(() => options.transportFactory(options.url), {\n" +
+                "                bufferSize: 1024,\n" +
+                "                resumeToken: resumeToken(),\n" +
+                "                sessionDurationSeconds: options.sessionDurationSeconds\n" +
+                "            }, BufferEncoders);\n" +
+                "        }\n" +
+                "        connection.client = new RSocketClient({\n" +
+                "            setup: {\n" +
+                "                keepAlive: options.keepAlive,\n" +
+                "                lifetime: options.lifetime,\n" +
+                "                dataMimeType: options.dataMimeType,\n" +
+                "                metadataMimeType: MESSAGE_RSOCKET_COMPOSITE_METADATA.string\n" +
+                "            },\n" +
+                "            transport: transport\n" +
+                "        });\n" +
+                "        return connection.client.connect().then(rsocket => {\n" +
+                "            rsocket.connectionStatus().subscribe({\n" +
+                "                onNext: status => {\n" +
+                "                    if (status.kind === 'CLOSED' || status.kind === 'ERROR') {\n" +
+                "                        connection.promise = null;\n" +
+                "                    }\n" +
+                "                },\n" +
+                "                onSubscribe: subscription => subscription.request(Number.MAX_SAFE_INTEGER)\n" +
+                "            });\n" +
+                "            return {\n" +
+                "                fireAndForget: payload => rsocket.fireAndForget(payload),\n" +
+                "                requestResponse: payload => trackPending(rsocket.requestResponse(payload), connection),\n" +
+                "                requestStream: payload => trackPending(rsocket.requestStream(payload), connection),\n" +
+                "                requestChannel: payloads => trackPending(rsocket.requestChannel(payloads), connection),\n" +
+                "                metadataPush: payload => rsocket.metadataPush(payload),\n" +
+                "                connectionStatus: () => rsocket.connectionStatus(),\n" +
+                "                close: () => rsocket.close()\n" +
+                "            };\n" +
+                "        }, error => {\n" +
+                "            connection.promise = null;\n" +
+                "            throw error;\n" +
+                "        });\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * close all connections\n" +
+                "     */\n" +
+                "    close() {\n" +
+                "        this.connections.forEach(connection => {\n" +
+                "            if (connection.client) {\n" +
+                "                connection.client.close();\n" +
+                "            }\n" +
+                "            connection.promise = null;\n" +
+                "            connection.client = null;\n" +
+                "        });\n" +
+                "    }\n" +
+                "}\n" +
+                "\n" +
+                "module.exports = {\n" +
+                "    RSocketConnectionPool: RSocketConnectionPool,\n" +
+                "    createPool: options => new RSocketConnectionPool(options)\n" +
+                "};\n";
+        return connectionJs.replace("$dataMimeType", dataCodec == NpmDataCodec.CBOR ? dataCodec.getMimeType() : NpmDataCodec.JSON.getMimeType());
+    }
+
+    public String generateDeclaration() {
+        @Language("TypeScript")
+        String connectionDts = "import {ReactiveSocket} from 'rsocket-types';\n" +
+                "\n" +
+                "export interface ConnectionPoolOptions {\n" +
+                "    url: string;\n" +
+                "    size?: number;\n" +
+                "    strategy?: 'round-robin' | 'least-pending';\n" +
+                "    resume?: boolean;\n" +
+                "    sessionDurationSeconds?: number;\n" +
+                "    keepAlive?: number;\n" +
+                "    lifetime?: number;\n" +
+                "    dataMimeType?: string;\n" +
+                "    transportFactory?: (url: string) => any;\n" +
+                "}\n" +
+                "\n" +
+                "export declare class RSocketConnectionPool {\n" +
+                "    constructor(options: ConnectionPoolOptions);\n" +
+                "\n" +
+                "    acquire(): Promise<ReactiveSocket<any, any>>;\n" +
+                "\n" +
+                "    close(): void;\n" +
+                "}\n" +
+                "\n" +
+                "export declare function createPool(options: ConnectionPoolOptions): RSocketConnectionPool;\n";
+        return connectionDts;
+    }
+}
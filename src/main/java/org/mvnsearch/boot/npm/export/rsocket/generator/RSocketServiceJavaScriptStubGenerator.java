@@ -1,12 +1,14 @@
 package org.mvnsearch.boot.npm.export.rsocket.generator;
 
 import io.rsocket.frame.FrameType;
+import org.mvnsearch.boot.npm.export.rsocket.NpmDataCodec;
+import org.mvnsearch.boot.npm.export.rsocket.NpmFireAndForgetBatch;
 import org.intellij.lang.annotations.Language;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.web.bind.annotation.ValueConstants;
 
-import java.lang.reflect.Field;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -17,20 +19,70 @@ import java.util.stream.Collectors;
  */
 @SuppressWarnings("StringConcatenationInsideStringBufferAppend")
 public class RSocketServiceJavaScriptStubGenerator extends BaseGenerator implements JavaToJsTypeConverter {
+    private static final String GENERATED_HEADER = "// Don't edit this file because it was generated by Spring Boot App!!!\n";
+    /**
+     * runtime functions exported by runtime module and imported by service modules
+     */
+    public static final String RUNTIME_EXPORTS = "Observable, Flowable, defaultStreamWindow, requestMetadata, windowedSubscriber, cancelSubscription, dataMimeType, encodeData, decodeData, ResponseCache";
+    /**
+     * npm package version in JSDoc
+     */
+    private String version = "0.0.0";
+
     public RSocketServiceJavaScriptStubGenerator(Class<?> serviceClassImpl) {
         super(serviceClassImpl);
     }
 
+    public RSocketServiceJavaScriptStubGenerator(RSocketServiceStubModel stubModel) {
+        super(stubModel);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
     public String generate(String serviceName) {
+        return generate(serviceName, NpmDataCodec.JSON);
+    }
+
+    public String generate(String serviceName, NpmDataCodec dataCodec) {
+        return generateRuntime(ModuleFormat.COMMONJS, dataCodec) + generateService(serviceName, ModuleFormat.COMMONJS, null);
+    }
+
+    /**
+     * runtime shared by services: imports, routing metadata, data codec and demand window
+     *
+     * @param moduleFormat module format
+     * @param dataCodec    data codec
+     * @return runtime code
+     */
+    public String generateRuntime(ModuleFormat moduleFormat, NpmDataCodec dataCodec) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(GENERATED_HEADER);
+        if (moduleFormat == ModuleFormat.ESM) {
+            builder.append("import {Observable} from 'rxjs';\n" +
+                    "import {Flowable} from 'rsocket-flowable';\n" +
+                    "import {encodeAndAddWellKnownMetadata, MESSAGE_RSOCKET_ROUTING} from 'rsocket-core';\n");
+            if (dataCodec == NpmDataCodec.CBOR) {
+                builder.append("import cbor from 'cbor';\n");
+            }
+        } else {
+            builder.append("const {Observable} = require('rxjs');\n" +
+                    "const {Flowable} =  require('rsocket-flowable');\n" +
+                    "const {encodeAndAddWellKnownMetadata, MESSAGE_RSOCKET_ROUTING} = require('rsocket-core');\n" +
+                    "const {ReactiveSocket} = require('rsocket-types')\n");
+            if (dataCodec == NpmDataCodec.CBOR) {
+                builder.append("const cbor = require('cbor');\n");
+            }
+        }
+        builder.append("\n");
         @Language("JavaScript")
-        String global = "// Don't edit this file because it was generated by Spring Boot App!!!\n" +
-                "const {Observable} = require('rxjs');\n" +
-                "const {Flowable} =  require('rsocket-flowable');\n" +
-                "const {encodeAndAddWellKnownMetadata, MESSAGE_RSOCKET_ROUTING} = require('rsocket-core');\n" +
-                "const {ReactiveSocket} = require('rsocket-types')\n" +
-                "\n" +
-                "//const murmurhash3Seed = 104729;\n" +
-                "const maxRSocketRequestN = 2147483647;\n" +
+        String runtime = "//const murmurhash3Seed = 104729;\n" +
+                "const defaultStreamWindow = {size: 256, lowWaterMark: 64};\n" +
                 "\n" +
                 "function requestMetadata(route) {\n" +
                 "    return encodeAndAddWellKnownMetadata(\n" +
@@ -54,7 +106,76 @@ public class RSocketServiceJavaScriptStubGenerator extends BaseGenerator impleme
                 "    } else {\n" +
                 "        return Buffer.from(JSON.stringify(param))\n" +
                 "    }\n" +
-                "}\n\n";
+                "}\n" +
+                "\n" +
+                "/**\n" +
+                " * windowed subscriber for requestStream and requestChannel: request N elements first,\n" +
+                " * then refill demand when outstanding elements drop to low-water mark\n" +
+                " * @param {Object} subscriber rxjs subscriber\n" +
+                " * @param {{size: number, lowWaterMark: number}} streamWindow\n" +
+                " * @param {{subscription: Object, cancelled: boolean}} holder\n" +
+                " * @return {Object}\n" +
+                " */\n" +
+                "function windowedSubscriber(subscriber, streamWindow, holder) {\n" +
+                "    const size = Math.max(1, streamWindow.size);\n" +
+                "    const lowWaterMark = streamWindow.lowWaterMark == null || streamWindow.lowWaterMark < 0 ? (size >> 2) : Math.min(streamWindow.lowWaterMark, size - 1);\n" +
+                "    let outstanding = 0;\n" +
+                "    return {\n" +
+                "        onComplete: () => {\n" +
+                "            holder.subscription = null;\n" +
+                "            subscriber.complete();\n" +
+                "        },\n" +
+                "        onError: error => {\n" +
+                "            holder.subscription = null;\n" +
+                "            subscriber.error(error);\n" +
+                "        },\n" +
+                "        onNext: value => {\n" +
+                "            subscriber.next(decodeData(value.data));\n" +
+                "            outstanding--;\n" +
+                "            if (outstanding <= lowWaterMark && holder.subscription) {\n" +
+                "                const n = size - outstanding;\n" +
+                "                outstanding = size;\n" +
+                "                holder.subscription.request(n);\n" +
+                "            }\n" +
+                "        },\n" +
+                "        onSubscribe: sub => {\n" +
+                "            if (holder.cancelled) {\n" +
+                "                sub.cancel();\n" +
+                "            } else {\n" +
+                "                holder.subscription = sub;\n" +
+                "                outstanding = size;\n" +
+                "                sub.request(size);\n" +
+                "            }\n" +
+                "        }\n" +
+                "    };\n" +
+                "}\n" +
+                "\n" +
+                "/**\n" +
+                " * cancel rsocket subscription when rxjs subscriber unsubscribed\n" +
+                " * @param {{subscription: Object, cancelled: boolean}} holder\n" +
+                " */\n" +
+                "function cancelSubscription(holder) {\n" +
+                "    holder.cancelled = true;\n" +
+                "    if (holder.subscription) {\n" +
+                "        holder.subscription.cancel();\n" +
+                "        holder.subscription = null;\n" +
+                "    }\n" +
+                "}\n" +
+                "\n";
+        builder.append(runtime);
+        builder.append(dataCodecDeclare(dataCodec)).append("\n");
+        return builder.toString();
+    }
+
+    /**
+     * service module: routing metadata, response caches, batches, service class and typedefs
+     *
+     * @param serviceName   service name
+     * @param moduleFormat  module format
+     * @param runtimeModule runtime module to import, such as './runtime.js', null if runtime is in the same file
+     * @return service code
+     */
+    public String generateService(String serviceName, ModuleFormat moduleFormat, @Nullable String runtimeModule) {
         @Language(value = "JavaScript", suffix = "}")
         String classDeclare = "/**\n" +
                 " * @version $version\n" +
@@ -62,6 +183,19 @@ public class RSocketServiceJavaScriptStubGenerator extends BaseGenerator impleme
                 "class XxxxService {\n" +
                 "    constructor() {\n" +
                 "        this.serviceName = '$serviceName';\n" +
+                "        this.streamWindow = defaultStreamWindow;\n" +
+                "        // RSocket data MIME type for setup frame\n" +
+                "        this.dataMimeType = dataMimeType;\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * routing metadata for method\n" +
+                "     * @param {string} methodName\n" +
+                "     * @return {Buffer}\n" +
+                "     * @private\n" +
+                "     */\n" +
+                "    routeMetadata(methodName) {\n" +
+                "        return routeMetadataCache[methodName] || requestMetadata(this.serviceName + \".\" + methodName);\n" +
                 "    }\n" +
                 "\n" +
                 "    /**\n" +
@@ -72,13 +206,13 @@ public class RSocketServiceJavaScriptStubGenerator extends BaseGenerator impleme
                 "     * @private\n" +
                 "     */\n" +
                 "    rsocketRequestResponse(methodName, param) {\n" +
-                "        return this.promiseRSocket.then(rsocket => {\n" +
+                "        return this.acquireRSocket().then(rsocket => {\n" +
                 "            return new Promise((resolve, reject) => {\n" +
                 "                rsocket.requestResponse({\n" +
-                "                    data: toJsonBuffer(param),\n" +
-                "                    metadata: requestMetadata(this.serviceName + \".\" + methodName)\n" +
+                "                    data: encodeData(param),\n" +
+                "                    metadata: this.routeMetadata(methodName)\n" +
                 "                }).subscribe({\n" +
-                "                    onComplete: (value) => resolve(JSON.parse(value.data.toString())),\n" +
+                "                    onComplete: (value) => resolve(decodeData(value.data)),\n" +
                 "                    onError: error => reject(error)\n" +
                 "                });\n" +
                 "            });\n" +
@@ -93,11 +227,11 @@ public class RSocketServiceJavaScriptStubGenerator extends BaseGenerator impleme
                 "     * @private\n" +
                 "     */\n" +
                 "    rsocketFireAndForget(methodName, param) {\n" +
-                "        return this.promiseRSocket.then(rsocket => {\n" +
+                "        return this.acquireRSocket().then(rsocket => {\n" +
                 "            return new Promise((resolve, reject) => {\n" +
                 "                rsocket.fireAndForget({\n" +
-                "                    data: toJsonBuffer(param),\n" +
-                "                    metadata: requestMetadata(this.serviceName + \".\" + methodName)\n" +
+                "                    data: encodeData(param),\n" +
+                "                    metadata: this.routeMetadata(methodName)\n" +
                 "                }).subscribe({\n" +
                 "                    onComplete: (value) => {\n" +
                 "                        resolve(true)\n" +
@@ -112,22 +246,20 @@ public class RSocketServiceJavaScriptStubGenerator extends BaseGenerator impleme
                 "     * rsocket requestStream\n" +
                 "     * @param {string} methodName\n" +
                 "     * @param {Object|number|null} [param]\n" +
+                "     * @param {{size: number, lowWaterMark: number}} [streamWindow] demand window\n" +
                 "     * @return {Observable<Object>}\n" +
                 "     * @private\n" +
                 "     */\n" +
-                "    rsocketRequestStream(methodName, param) {\n" +
+                "    rsocketRequestStream(methodName, param, streamWindow) {\n" +
                 "        return new Observable(subscriber => {\n" +
-                "            this.promiseRSocket.then(rsocket => {\n" +
+                "            const holder = {subscription: null, cancelled: false};\n" +
+                "            this.acquireRSocket().then(rsocket => {\n" +
                 "                rsocket.requestStream({\n" +
-                "                    data: toJsonBuffer(param),\n" +
-                "                    metadata: requestMetadata(this.serviceName + \".\" + methodName)\n" +
-                "                }).subscribe({\n" +
-                "                    onComplete: () => subscriber.complete(),\n" +
-                "                    onError: error => subscriber.error(error),\n" +
-                "                    onNext: value => subscriber.next(JSON.parse(value.data.toString())),\n" +
-                "                    onSubscribe: sub => sub.request(maxRSocketRequestN)\n" +
-                "                });\n" +
+                "                    data: encodeData(param),\n" +
+                "                    metadata: this.routeMetadata(methodName)\n" +
+                "                }).subscribe(windowedSubscriber(subscriber, streamWindow || this.streamWindow, holder));\n" +
                 "            });\n" +
+                "            return () => cancelSubscription(holder);\n" +
                 "        })\n" +
                 "    }\n" +
                 "\n" +
@@ -135,10 +267,11 @@ public class RSocketServiceJavaScriptStubGenerator extends BaseGenerator impleme
                 "     * rsocket requestChannel\n" +
                 "     * @param {string} methodName\n" +
                 "     * @param {Array|Observable|Flowable} [param]\n" +
+                "     * @param {{size: number, lowWaterMark: number}} [streamWindow] demand window\n" +
                 "     * @return {Observable<Object>}\n" +
                 "     * @private\n" +
                 "     */\n" +
-                "    rsocketRequestChannel(methodName, param) {\n" +
+                "    rsocketRequestChannel(methodName, param, streamWindow) {\n" +
                 "        let fluxData = null;\n" +
                 "        if (Array.isArray(param)) {\n" +
                 "            fluxData = Flowable.just(param);\n" +
@@ -160,19 +293,20 @@ public class RSocketServiceJavaScriptStubGenerator extends BaseGenerator impleme
                 "            fluxData = param;\n" +
                 "        }\n" +
                 "        return new Observable(subscriber => {\n" +
-                "            this.promiseRSocket.then(rsocket => {\n" +
+                "            const holder = {subscription: null, cancelled: false};\n" +
+                "            // route metadata is only required by the first frame of channel\n" +
+                "            let firstFrame = true;\n" +
+                "            this.acquireRSocket().then(rsocket => {\n" +
                 "                rsocket.requestChannel(fluxData.map(data => {\n" +
+                "                    const metadata = firstFrame ? this.routeMetadata(methodName) : null;\n" +
+                "                    firstFrame = false;\n" +
                 "                    return {\n" +
-                "                        data: toJsonBuffer(data),\n" +
-                "                        metadata: requestMetadata(this.serviceName + \".\" + methodName)\n" +
+                "                        data: encodeData(data),\n" +
+                "                        metadata: metadata\n" +
                 "                    }\n" +
-                "                })).subscribe({\n" +
-                "                    onComplete: () => subscriber.complete(),\n" +
-                "                    onError: error => subscriber.error(error),\n" +
-                "                    onNext: value => subscriber.next(JSON.parse(value.data.toString())),\n" +
-                "                    onSubscribe: sub => sub.request(maxRSocketRequestN)\n" +
-                "                });\n" +
+                "                })).subscribe(windowedSubscriber(subscriber, streamWindow || this.streamWindow, holder));\n" +
                 "            });\n" +
+                "            return () => cancelSubscription(holder);\n" +
                 "        })\n" +
                 "    }\n" +
                 "\n" +
@@ -184,25 +318,420 @@ public class RSocketServiceJavaScriptStubGenerator extends BaseGenerator impleme
                 "    setPromiseRSocket(promiseRSocket) {\n" +
                 "        this.promiseRSocket = promiseRSocket;\n" +
                 "        return this;\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * set RSocket pool, such as RSocketConnectionPool from connection.js, and every request acquires RSocket from pool\n" +
+                "     * @param {{acquire: function(): Promise<ReactiveSocket>}} rsocketPool\n" +
+                "     * @returns {XxxxService}\n" +
+                "     */\n" +
+                "    setRSocketPool(rsocketPool) {\n" +
+                "        this.rsocketPool = rsocketPool;\n" +
+                "        return this;\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * acquire RSocket from pool, or the Promise RSocket\n" +
+                "     * @return {Promise<ReactiveSocket>}\n" +
+                "     * @private\n" +
+                "     */\n" +
+                "    acquireRSocket() {\n" +
+                "        return this.rsocketPool ? this.rsocketPool.acquire() : this.promiseRSocket;\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * set default demand window for requestStream and requestChannel\n" +
+                "     * @param {number} size request N for every window\n" +
+                "     * @param {number} [lowWaterMark] refill demand when outstanding elements drop to this mark, default is size / 4\n" +
+                "     * @returns {XxxxService}\n" +
+                "     */\n" +
+                "    setStreamWindow(size, lowWaterMark) {\n" +
+                "        this.streamWindow = {size, lowWaterMark};\n" +
+                "        return this;\n" +
                 "    }\n";
         StringBuilder builder = new StringBuilder();
-        builder.append(global);
-        String version = new SimpleDateFormat("yyyy.MM.dd").format(new Date());
+        if (runtimeModule != null) {
+            builder.append(GENERATED_HEADER);
+            builder.append(moduleFormat == ModuleFormat.ESM ? "import {" + RUNTIME_EXPORTS + "} from '" + runtimeModule + "';\n\n"
+                    : "const {" + RUNTIME_EXPORTS + "} = require('" + runtimeModule + "');\n\n");
+        }
         String newClassDeclare = classDeclare
                 .replaceAll("XxxxService", jsClassName)
                 .replace("$version", version)
                 .replace("$serviceName", serviceName);
+        builder.append(routeMetadataDeclare(serviceName));
+        if (runtimeModule == null && jsHttpStubMethods.stream().anyMatch(JsRSocketStubMethod::isResponseCached)) {
+            builder.append(responseCacheClass());
+        }
+        builder.append(responseCacheDeclare());
+        builder.append(fireAndForgetBatchDeclare());
         builder.append(newClassDeclare);
+        if (jsHttpStubMethods.stream().anyMatch(JsRSocketStubMethod::isResponseCached)) {
+            builder.append("\n" +
+                    "    /**\n" +
+                    "     * clear cached responses\n" +
+                    "     * @param {string} [methodName] method name, all methods if absent\n" +
+                    "     * @returns {" + jsClassName + "}\n" +
+                    "     */\n" +
+                    "    clearResponseCache(methodName) {\n" +
+                    "        Object.keys(responseCaches)\n" +
+                    "            .filter(name => methodName == null || name === methodName)\n" +
+                    "            .forEach(name => responseCaches[name].clear());\n" +
+                    "        return this;\n" +
+                    "    }\n");
+        }
+        if (jsHttpStubMethods.stream().anyMatch(JsRSocketStubMethod::isBatched)) {
+            @Language(value = "JavaScript", prefix = "class Batch {", suffix = "}")
+            String batchMethods = "\n" +
+                    "    /**\n" +
+                    "     * buffer fireAndForget call, and buffered calls are sent as one batch frame by size or time\n" +
+                    "     * @param {string} methodName\n" +
+                    "     * @param {Object|number|null} [param]\n" +
+                    "     * @return {Promise<boolean>}\n" +
+                    "     * @private\n" +
+                    "     */\n" +
+                    "    batchFireAndForget(methodName, param) {\n" +
+                    "        const batch = fireAndForgetBatches[methodName];\n" +
+                    "        batch.items.push(param === undefined ? null : param);\n" +
+                    "        if (batch.items.length >= batch.maxSize) {\n" +
+                    "            return this.flushBatch(methodName);\n" +
+                    "        }\n" +
+                    "        if (batch.timer == null) {\n" +
+                    "            batch.timer = setTimeout(() => this.flushBatch(methodName), batch.maxDelay);\n" +
+                    "        }\n" +
+                    "        return Promise.resolve(true);\n" +
+                    "    }\n" +
+                    "\n" +
+                    "    /**\n" +
+                    "     * send buffered fireAndForget calls of method\n" +
+                    "     * @param {string} methodName\n" +
+                    "     * @return {Promise<boolean>}\n" +
+                    "     * @private\n" +
+                    "     */\n" +
+                    "    flushBatch(methodName) {\n" +
+                    "        const batch = fireAndForgetBatches[methodName];\n" +
+                    "        if (batch.timer != null) {\n" +
+                    "            clearTimeout(batch.timer);\n" +
+                    "            batch.timer = null;\n" +
+                    "        }\n" +
+                    "        if (batch.items.length === 0) {\n" +
+                    "            return Promise.resolve(true);\n" +
+                    "        }\n" +
+                    "        const items = batch.items;\n" +
+                    "        batch.items = [];\n" +
+                    "        return this.acquireRSocket().then(rsocket => {\n" +
+                    "            rsocket.fireAndForget({\n" +
+                    "                data: encodeData({route: this.serviceName + \".\" + methodName, items: items}),\n" +
+                    "                metadata: batchRouteMetadata\n" +
+                    "            });\n" +
+                    "            return true;\n" +
+                    "        });\n" +
+                    "    }\n" +
+                    "\n" +
+                    "    /**\n" +
+                    "     * send all buffered fireAndForget calls, such as before page unload\n" +
+                    "     * @return {Promise<boolean>}\n" +
+                    "     */\n" +
+                    "    flushBatches() {\n" +
+                    "        return Promise.all(Object.keys(fireAndForgetBatches).map(name => this.flushBatch(name))).then(() => true);\n" +
+                    "    }\n";
+            builder.append(batchMethods);
+        }
+        // ES module exports methods as functions for tree shaking, and CommonJS keeps them in class
+        Collection<JsRSocketStubMethod> exportedMethods = moduleFormat == ModuleFormat.ESM ? getExportedStubMethods() : Collections.emptyList();
         for (JsRSocketStubMethod jsHttpStubMethod : jsHttpStubMethods) {
-            builder.append(toJsCode(jsHttpStubMethod, "    ") + "\n");
+            if (!exportedMethods.contains(jsHttpStubMethod)) {
+                builder.append(toJsCode(jsHttpStubMethod, "    ") + "\n");
+            }
         }
         builder.append("}\n\n");
-        builder.append("module.exports = new " + jsClassName + "();\n\n");
+        if (moduleFormat == ModuleFormat.ESM) {
+            builder.append(functionExports(exportedMethods));
+        } else {
+            builder.append("module.exports = new " + jsClassName + "();\n\n");
+        }
         builder.append(typedefs());
         return builder.toString();
     }
 
+    /**
+     * ES module exports: service methods and settings as functions sharing one service instance, and the instance as default export
+     *
+     * @param exportedMethods methods exported as functions
+     * @return exports declaration
+     */
+    public String functionExports(Collection<JsRSocketStubMethod> exportedMethods) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("const service = new " + jsClassName + "();\n\n");
+        builder.append("/**\n" +
+                " * set rsocket\n" +
+                " * @param {Promise<ReactiveSocket>} promiseRSocket\n" +
+                " * @returns {" + jsClassName + "}\n" +
+                " */\n" +
+                "export function setPromiseRSocket(promiseRSocket) {\n" +
+                "  return service.setPromiseRSocket(promiseRSocket);\n" +
+                "}\n\n");
+        builder.append("/**\n" +
+                " * set RSocket pool, and every request acquires RSocket from pool\n" +
+                " * @param {{acquire: function(): Promise<ReactiveSocket>}} rsocketPool\n" +
+                " * @returns {" + jsClassName + "}\n" +
+                " */\n" +
+                "export function setRSocketPool(rsocketPool) {\n" +
+                "  return service.setRSocketPool(rsocketPool);\n" +
+                "}\n\n");
+        builder.append("/**\n" +
+                " * set default demand window for requestStream and requestChannel\n" +
+                " * @param {number} size request N for every window\n" +
+                " * @param {number} [lowWaterMark] refill demand when outstanding elements drop to this mark\n" +
+                " * @returns {" + jsClassName + "}\n" +
+                " */\n" +
+                "export function setStreamWindow(size, lowWaterMark) {\n" +
+                "  return service.setStreamWindow(size, lowWaterMark);\n" +
+                "}\n\n");
+        if (jsHttpStubMethods.stream().anyMatch(JsRSocketStubMethod::isResponseCached)) {
+            builder.append("/**\n" +
+                    " * clear cached responses\n" +
+                    " * @param {string} [methodName] method name, all methods if absent\n" +
+                    " * @returns {" + jsClassName + "}\n" +
+                    " */\n" +
+                    "export function clearResponseCache(methodName) {\n" +
+                    "  return service.clearResponseCache(methodName);\n" +
+                    "}\n\n");
+        }
+        if (jsHttpStubMethods.stream().anyMatch(JsRSocketStubMethod::isBatched)) {
+            builder.append("/**\n" +
+                    " * send all buffered fireAndForget calls, such as before page unload\n" +
+                    " * @return {Promise<boolean>}\n" +
+                    " */\n" +
+                    "export function flushBatches() {\n" +
+                    "  return service.flushBatches();\n" +
+                    "}\n\n");
+        }
+        for (JsRSocketStubMethod stubMethod : exportedMethods) {
+            builder.append(toJsCode(stubMethod, "", "export function ", "service") + "\n");
+        }
+        // pure annotation lets bundlers drop the default instance and unused functions if default export is not imported
+        builder.append("export default /*#__PURE__*/ Object.assign(service, {");
+        builder.append(exportedMethods.stream().map(JsRSocketStubMethod::getName).collect(Collectors.joining(", ")));
+        builder.append("});\n\n");
+        return builder.toString();
+    }
+
+    /**
+     * data encode and decode functions for codec
+     *
+     * @param dataCodec data codec
+     * @return codec declaration
+     */
+    public String dataCodecDeclare(NpmDataCodec dataCodec) {
+        if (dataCodec == NpmDataCodec.CBOR) {
+            @Language("JavaScript")
+            String cborCodec = "const dataMimeType = 'application/cbor';\n" +
+                    "\n" +
+                    "/**\n" +
+                    " * encode param as CBOR\n" +
+                    " * @param {Object|number|string|null} param\n" +
+                    " * @return {Buffer|null}\n" +
+                    " */\n" +
+                    "function encodeData(param) {\n" +
+                    "    return param == null ? null : cbor.encode(param);\n" +
+                    "}\n" +
+                    "\n" +
+                    "/**\n" +
+                    " * decode CBOR data\n" +
+                    " * @param {Buffer} data\n" +
+                    " * @return {Object}\n" +
+                    " */\n" +
+                    "function decodeData(data) {\n" +
+                    "    return cbor.decodeFirstSync(data);\n" +
+                    "}\n";
+            return cborCodec;
+        }
+        @Language("JavaScript")
+        String jsonCodec = "const dataMimeType = 'application/json';\n" +
+                "\n" +
+                "/**\n" +
+                " * encode param as JSON\n" +
+                " * @param {Object|number|string|null} param\n" +
+                " * @return {Buffer|null}\n" +
+                " */\n" +
+                "function encodeData(param) {\n" +
+                "    return toJsonBuffer(param);\n" +
+                "}\n" +
+                "\n" +
+                "/**\n" +
+                " * decode JSON data\n" +
+                " * @param {Buffer} data\n" +
+                " * @return {Object}\n" +
+                " */\n" +
+                "function decodeData(data) {\n" +
+                "    return JSON.parse(data.toString());\n" +
+                "}\n";
+        return jsonCodec;
+    }
+
+    /**
+     * pre-encoded routing metadata for every method, and metadata will not be encoded again for every call
+     *
+     * @param serviceName service name
+     * @return routing metadata declaration
+     */
+    public String routeMetadataDeclare(String serviceName) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("/**\n");
+        builder.append(" * pre-encoded routing metadata for every method\n");
+        builder.append(" * @type {Object<string, Buffer>}\n");
+        builder.append(" */\n");
+        builder.append("const routeMetadataCache = Object.freeze({\n");
+        builder.append(jsHttpStubMethods.stream()
+                .map(JsRSocketStubMethod::getName)
+                .distinct()
+                .map(name -> "    " + name + ": requestMetadata('" + serviceName + "." + name + "')")
+                .collect(Collectors.joining(",\n")));
+        builder.append("\n});\n\n");
+        return builder.toString();
+    }
+
+    /**
+     * ResponseCache class for in-flight deduplication and LRU/TTL cache
+     *
+     * @return ResponseCache class declaration
+     */
+    public String responseCacheClass() {
+        @Language("JavaScript")
+        String responseCacheClass = "/**\n" +
+                " * in-flight deduplication and LRU/TTL cache for requestResponse results\n" +
+                " */\n" +
+                "class ResponseCache {\n" +
+                "    /**\n" +
+                "     * @param {number} ttl time to live in milliseconds, 0 for in-flight deduplication only\n" +
+                "     * @param {number} maxSize max count of cached results\n" +
+                "     */\n" +
+                "    constructor(ttl, maxSize) {\n" +
+                "        this.ttl = ttl;\n" +
+                "        this.maxSize = maxSize;\n" +
+                "        this.entries = new Map();\n" +
+                "        this.inflight = new Map();\n" +
+                "        // bumped by clear(), and results loaded before clear() are not cached\n" +
+                "        this.generation = 0;\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * get cached result, or share in-flight request with same key\n" +
+                "     * @param {string} key\n" +
+                "     * @param {function(): Promise<Object>} loader\n" +
+                "     * @return {Promise<Object>}\n" +
+                "     */\n" +
+                "    get(key, loader) {\n" +
+                "        const entry = this.entries.get(key);\n" +
+                "        if (entry) {\n" +
+                "            this.entries.delete(key);\n" +
+                "            if (entry.expireAt > Date.now()) {\n" +
+                "                // re-insert as most recently used\n" +
+                "                this.entries.set(key, entry);\n" +
+                "                return Promise.resolve(entry.value);\n" +
+                "            }\n" +
+                "        }\n" +
+                "        let pending = this.inflight.get(key);\n" +
+                "        if (!pending) {\n" +
+                "            const generation = this.generation;\n" +
+                "            pending = loader().then(value => {\n" +
+                "                // cleared while loading, and in-flight entry may belong to a newer request\n" +
+                "                if (generation !== this.generation) {\n" +
+                "                    return value;\n" +
+                "                }\n" +
+                "                this.inflight.delete(key);\n" +
+                "                if (this.ttl > 0 && this.maxSize > 0) {\n" +
+                "                    this.entries.set(key, {value: value, expireAt: Date.now() + this.ttl});\n" +
+                "                    if (this.entries.size > this.maxSize) {\n" +
+                "                        this.entries.delete(this.entries.keys().next().value);\n" +
+                "                    }\n" +
+                "                }\n" +
+                "                return value;\n" +
+                "            }, error => {\n" +
+                "                if (generation === this.generation) {\n" +
+                "                    this.inflight.delete(key);\n" +
+                "                }\n" +
+                "                throw error;\n" +
+                "            });\n" +
+                "            this.inflight.set(key, pending);\n" +
+                "        }\n" +
+                "        return pending;\n" +
+                "    }\n" +
+                "\n" +
+                "    clear() {\n" +
+                "        this.generation++;\n" +
+                "        this.entries.clear();\n" +
+                "        this.inflight.clear();\n" +
+                "    }\n" +
+                "}\n" +
+                "\n";
+        return responseCacheClass;
+    }
+
+    /**
+     * response caches for methods with @NpmResponseCache, empty if no method cached
+     *
+     * @return response cache declaration
+     */
+    public String responseCacheDeclare() {
+        if (jsHttpStubMethods.stream().noneMatch(JsRSocketStubMethod::isResponseCached)) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append("/**\n");
+        builder.append(" * response caches for requestResponse methods, key is method arguments in JSON\n");
+        builder.append(" * @type {Object<string, ResponseCache>}\n");
+        builder.append(" */\n");
+        builder.append("const responseCaches = Object.freeze({\n");
+        builder.append(jsHttpStubMethods.stream()
+                .filter(JsRSocketStubMethod::isResponseCached)
+                .map(stubMethod -> "    " + stubMethod.getName() + ": new ResponseCache(" + stubMethod.getResponseCacheTtl() + ", " + stubMethod.getResponseCacheMaxSize() + ")")
+                .distinct()
+                .collect(Collectors.joining(",\n")));
+        builder.append("\n});\n\n");
+        return builder.toString();
+    }
+
+    /**
+     * fireAndForget batches for methods with @NpmFireAndForgetBatch, empty if no method batched
+     *
+     * @return batch declaration
+     */
+    public String fireAndForgetBatchDeclare() {
+        if (jsHttpStubMethods.stream().noneMatch(JsRSocketStubMethod::isBatched)) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append("const batchRouteMetadata = requestMetadata('" + NpmFireAndForgetBatch.ROUTE + "');\n\n");
+        builder.append("/**\n");
+        builder.append(" * buffered fireAndForget calls for batch methods\n");
+        builder.append(" * @type {Object<string, {items: Array, timer: Object, maxSize: number, maxDelay: number}>}\n");
+        builder.append(" */\n");
+        builder.append("const fireAndForgetBatches = {\n");
+        builder.append(jsHttpStubMethods.stream()
+                .filter(JsRSocketStubMethod::isBatched)
+                .map(stubMethod -> "    " + stubMethod.getName() + ": {items: [], timer: null, maxSize: " + stubMethod.getBatchMaxSize() + ", maxDelay: " + stubMethod.getBatchMaxDelay() + "}")
+                .distinct()
+                .collect(Collectors.joining(",\n")));
+        builder.append("\n};\n\n");
+        return builder.toString();
+    }
+
     public String toJsCode(JsRSocketStubMethod stubMethod, String indent) {
+        return toJsCode(stubMethod, indent, "", "this");
+    }
+
+    /**
+     * JavaScript code for stub method
+     *
+     * @param stubMethod stub method
+     * @param indent     indent
+     * @param declare    declaration before method name, such as "export function " for module level function
+     * @param receiver   service instance to call rsocket, such as "this"
+     * @return method code
+     */
+    public String toJsCode(JsRSocketStubMethod stubMethod, String indent, String declare, String receiver) {
         StringBuilder builder = new StringBuilder();
         builder.append(indent).append("/**\n");
         //description
@@ -227,10 +756,11 @@ public class RSocketServiceJavaScriptStubGenerator extends BaseGenerator impleme
                 }
             }
         }
-        String jsReturnType = stubMethod.getJsReturnType();
-        if (stubMethod.getJsDocTypeDef() == null && jsReturnType.contains("_")) {
-            this.javaBeanTypeDefMap.put(stubMethod.getReturnType(), jsReturnType);
+        boolean streamFrame = stubMethod.getFrameType() == FrameType.REQUEST_STREAM || stubMethod.getFrameType() == FrameType.REQUEST_CHANNEL;
+        if (streamFrame) {
+            builder.append(indent).append("* @param {{size: number, lowWaterMark: number}} [streamWindow] demand window\n");
         }
+        String jsReturnType = stubMethod.getJsReturnType();
         if (stubMethod.isResultNullable()) {
             jsReturnType = "(" + jsReturnType + "|null)";
         }
@@ -242,7 +772,7 @@ public class RSocketServiceJavaScriptStubGenerator extends BaseGenerator impleme
             builder.append(indent).append("* @return {Observable<" + jsReturnType + ">}\n");
         }
         builder.append(indent).append("*/\n");
-        builder.append(indent).append(stubMethod.getName() + "(");
+        builder.append(indent).append(declare + stubMethod.getName() + "(");
         String paramsDeclare = "";
         if (!stubMethod.getParams().isEmpty()) {
             paramsDeclare = stubMethod.getParams().stream()
@@ -250,19 +780,39 @@ public class RSocketServiceJavaScriptStubGenerator extends BaseGenerator impleme
                     .collect(Collectors.joining(", "));
             builder.append(paramsDeclare);
         }
+        if (streamFrame) {
+            builder.append(paramsDeclare.isEmpty() ? "streamWindow" : ", streamWindow");
+        }
         builder.append(") {\n");
         String requestParams = "";
         if (!paramsDeclare.equals("")) {
             requestParams = "," + paramsDeclare;
         }
-        if (stubMethod.getFrameType() == FrameType.REQUEST_CHANNEL) {
-            builder.append(indent).append("  return this.rsocketRequestChannel('" + stubMethod.getName() + "'" + requestParams + ");\n");
-        } else if (stubMethod.getFrameType() == FrameType.REQUEST_STREAM) {
-            builder.append(indent).append("  return this.rsocketRequestStream('" + stubMethod.getName() + "'" + requestParams + ");\n");
+        if (streamFrame) {
+            // data param is the last one for channel, and the first one for stream
+            String dataParam = "null";
+            if (!stubMethod.getParams().isEmpty()) {
+                int dataParamIndex = stubMethod.getFrameType() == FrameType.REQUEST_CHANNEL ? stubMethod.getParams().size() - 1 : 0;
+                dataParam = stubMethod.getParams().get(dataParamIndex).getName();
+            }
+            String streamWindow = "streamWindow";
+            if (stubMethod.getStreamWindowSize() > 0) {
+                streamWindow = "streamWindow || {size: " + stubMethod.getStreamWindowSize();
+                if (stubMethod.getStreamLowWaterMark() >= 0) {
+                    streamWindow = streamWindow + ", lowWaterMark: " + stubMethod.getStreamLowWaterMark();
+                }
+                streamWindow = streamWindow + "}";
+            }
+            String frameMethod = stubMethod.getFrameType() == FrameType.REQUEST_CHANNEL ? "rsocketRequestChannel" : "rsocketRequestStream";
+            builder.append(indent).append("  return " + receiver + "." + frameMethod + "('" + stubMethod.getName() + "', " + dataParam + ", " + streamWindow + ");\n");
+        } else if (stubMethod.isBatched()) {
+            builder.append(indent).append("  return " + receiver + ".batchFireAndForget('" + stubMethod.getName() + "'" + requestParams + ");\n");
         } else if (stubMethod.getFrameType() == FrameType.REQUEST_FNF) {
-            builder.append(indent).append("  return this.rsocketFireAndForget('" + stubMethod.getName() + "'" + requestParams + ");\n");
+            builder.append(indent).append("  return " + receiver + ".rsocketFireAndForget('" + stubMethod.getName() + "'" + requestParams + ");\n");
+        } else if (stubMethod.isResponseCached()) {
+            builder.append(indent).append("  return responseCaches." + stubMethod.getName() + ".get(JSON.stringify([" + paramsDeclare + "]), () => " + receiver + ".rsocketRequestResponse('" + stubMethod.getName() + "'" + requestParams + "));\n");
         } else {
-            builder.append(indent).append("  return this.rsocketRequestResponse('" + stubMethod.getName() + "'" + requestParams + ");\n");
+            builder.append(indent).append("  return " + receiver + ".rsocketRequestResponse('" + stubMethod.getName() + "'" + requestParams + ");\n");
         }
         builder.append(indent).append("}\n");
         return builder.toString();
@@ -272,11 +822,10 @@ public class RSocketServiceJavaScriptStubGenerator extends BaseGenerator impleme
         StringBuilder builder = new StringBuilder();
         builder.append("//================ JSDoc typedef ========================//\n");
         for (Map.Entry<Class<?>, String> entry : javaBeanTypeDefMap.entrySet()) {
-            Class<?> clazz = entry.getKey();
             builder.append("/**\n");
             builder.append("* @typedef {Object} " + entry.getValue() + "\n");
-            for (Field field : clazz.getDeclaredFields()) {
-                builder.append("* @property {" + toJsType(field.getType()) + "} " + field.getName() + "\n");
+            for (Map.Entry<String, String> property : stubModel.getTypeDefProperties(entry.getKey()).entrySet()) {
+                builder.append("* @property {" + property.getValue() + "} " + property.getKey() + "\n");
             }
             builder.append("*/\n");
         }
@@ -0,0 +1,258 @@
+package org.mvnsearch.boot.npm.export.rsocket.generator;
+
+import io.rsocket.frame.FrameType;
+import org.jetbrains.annotations.Nullable;
+import org.mvnsearch.boot.npm.export.rsocket.NpmFireAndForgetBatch;
+import org.mvnsearch.boot.npm.export.rsocket.NpmResponseCache;
+import org.mvnsearch.boot.npm.export.rsocket.NpmStreamWindow;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * RSocket service stub model: request methods, frame types, params and JavaBean typedefs of a service class.
+ * The model is computed once per class and shared by all generators.
+ *
+ * @author linux_china
+ */
+public class RSocketServiceStubModel implements JavaToJsTypeConverter {
+    private static final ClassValue<RSocketServiceStubModel> MODELS = new ClassValue<RSocketServiceStubModel>() {
+        @Override
+        protected RSocketServiceStubModel computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+    private final Class<?> serviceClass;
+    private final String jsClassName;
+    private final List<Method> requestMethods;
+    private final List<JsRSocketStubMethod> stubMethods;
+    /**
+     * JavaBean class to typedef name, including nested JavaBeans reachable from return types
+     */
+    private final Map<Class<?>, String> typeDefs;
+    /**
+     * JavaBean class to its properties: field name to js type
+     */
+    private final Map<Class<?>, Map<String, String>> typeDefProperties;
+
+    private RSocketServiceStubModel(Class<?> serviceClass) {
+        this.serviceClass = serviceClass;
+        this.jsClassName = serviceClass.getSimpleName().replace("Impl", "");
+        this.requestMethods = Collections.unmodifiableList(Arrays.stream(serviceClass.getMethods())
+                .filter(method -> AnnotationUtils.findAnnotation(method, MessageMapping.class) != null)
+                // getMethods() order is unspecified, sort to make generated code stable
+                .sorted(Comparator.comparing(Method::getName).thenComparing(Method::getParameterCount))
+                .collect(Collectors.toList()));
+        this.stubMethods = Collections.unmodifiableList(this.requestMethods.stream()
+                .map(RSocketServiceStubModel::generateMethodStub)
+                .collect(Collectors.toList()));
+        // walk JavaBean graph breadth-first, visited beans are skipped to dedup and break cycles
+        Map<Class<?>, String> typeDefs = new LinkedHashMap<>();
+        Map<Class<?>, Map<String, String>> typeDefProperties = new HashMap<>();
+        Deque<Class<?>> pendingBeans = new ArrayDeque<>();
+        for (JsRSocketStubMethod stubMethod : stubMethods) {
+            if (stubMethod.getJsDocTypeDef() == null) {
+                pendingBeans.add(stubMethod.getReturnType());
+            }
+        }
+        while (!pendingBeans.isEmpty()) {
+            Class<?> beanClass = pendingBeans.poll();
+            if (typeDefs.containsKey(beanClass) || !isJavaBean(beanClass)) {
+                continue;
+            }
+            typeDefs.put(beanClass, toJsType(beanClass));
+            Map<String, String> properties = new LinkedHashMap<>();
+            for (Field field : beanClass.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                    continue;
+                }
+                String jsType = toJsType(field.getType());
+                Class<?> elementType = elementType(field);
+                if (elementType != null && isJavaBean(elementType)) {
+                    jsType = "Array<" + toJsType(elementType) + ">";
+                    pendingBeans.add(elementType);
+                } else if (isJavaBean(field.getType())) {
+                    pendingBeans.add(field.getType());
+                }
+                properties.put(field.getName(), jsType);
+            }
+            typeDefProperties.put(beanClass, Collections.unmodifiableMap(properties));
+        }
+        this.typeDefs = Collections.unmodifiableMap(typeDefs);
+        this.typeDefProperties = typeDefProperties;
+    }
+
+    public static RSocketServiceStubModel of(Class<?> serviceClass) {
+        return MODELS.get(serviceClass);
+    }
+
+    /**
+     * create stub model without cache
+     *
+     * @param serviceClass service class
+     * @return new stub model
+     */
+    public static RSocketServiceStubModel create(Class<?> serviceClass) {
+        return new RSocketServiceStubModel(serviceClass);
+    }
+
+    public Class<?> getServiceClass() {
+        return serviceClass;
+    }
+
+    public String getJsClassName() {
+        return jsClassName;
+    }
+
+    public List<Method> getRequestMethods() {
+        return requestMethods;
+    }
+
+    public List<JsRSocketStubMethod> getStubMethods() {
+        return stubMethods;
+    }
+
+    public Map<Class<?>, String> getTypeDefs() {
+        return typeDefs;
+    }
+
+    /**
+     * JavaBean properties for typedef
+     *
+     * @param beanClass JavaBean class
+     * @return field name to js type
+     */
+    public Map<String, String> getTypeDefProperties(Class<?> beanClass) {
+        Map<String, String> properties = typeDefProperties.get(beanClass);
+        if (properties == null) {
+            properties = new LinkedHashMap<>();
+            for (Field field : beanClass.getDeclaredFields()) {
+                properties.put(field.getName(), toJsType(field.getType()));
+            }
+        }
+        return properties;
+    }
+
+    private boolean isJavaBean(@Nullable Class<?> clazz) {
+        return clazz != null && !clazz.isPrimitive() && !clazz.isArray() && !clazz.isInterface()
+                && !clazz.getName().startsWith("java.") && toJsType(clazz).contains("_");
+    }
+
+    @Nullable
+    private static Class<?> elementType(Field field) {
+        if (field.getType().isArray()) {
+            return field.getType().getComponentType();
+        }
+        if (Collection.class.isAssignableFrom(field.getType()) && field.getGenericType() instanceof ParameterizedType) {
+            Type typeArgument = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+            if (typeArgument instanceof Class) {
+                return (Class<?>) typeArgument;
+            }
+        }
+        return null;
+    }
+
+    public static JsRSocketStubMethod generateMethodStub(Method method) {
+        JsRSocketStubMethod stubMethod = new JsRSocketStubMethod();
+        stubMethod.setName(method.getName());
+        //@deprecated
+        Deprecated deprecated = method.getAnnotation(Deprecated.class);
+        if (deprecated != null) {
+            stubMethod.setDeprecated(true);
+        }
+        //parameters
+        Parameter[] parameters = method.getParameters();
+        if (parameters.length > 0) {
+            for (Parameter parameter : parameters) {
+                JsParam jsParam = new JsParam();
+                jsParam.setName(parameter.getName());
+                jsParam.setType(parameter.getType());
+                stubMethod.addParam(jsParam);
+            }
+        }
+        //return type
+        Type genericReturnType = method.getGenericReturnType();
+        stubMethod.setReturnType(parseInferredClass(genericReturnType));
+        //frame type
+        //bi direction check: param's type is Flux for 1st param or 2nd param
+        int paramCount = method.getParameterCount();
+        FrameType rsocketFrameType = null;
+        if (paramCount == 1 && method.getParameterTypes()[0].equals(Flux.class)) {
+            rsocketFrameType = FrameType.REQUEST_CHANNEL;
+        } else if (paramCount == 2 && method.getParameterTypes()[1].equals(Flux.class)) {
+            rsocketFrameType = FrameType.REQUEST_CHANNEL;
+        }
+        if (rsocketFrameType == FrameType.REQUEST_CHANNEL) {
+            if (method.getReturnType().isAssignableFrom(Mono.class)) {
+                stubMethod.setMonoChannel(true);
+            }
+        }
+        if (rsocketFrameType == null) {
+            Class<?> returnType = method.getReturnType();
+            // fire_and_forget
+            if (returnType.equals(Void.TYPE) || (returnType.equals(Mono.class) && stubMethod.getReturnType().equals(Void.TYPE))) {
+                rsocketFrameType = FrameType.REQUEST_FNF;
+            } else if (returnType.equals(Flux.class)) {  // request/stream
+                rsocketFrameType = FrameType.REQUEST_STREAM;
+            } else { //request/response
+                rsocketFrameType = FrameType.REQUEST_RESPONSE;
+            }
+        }
+        stubMethod.setFrameType(rsocketFrameType);
+        //stream demand window
+        if (rsocketFrameType == FrameType.REQUEST_STREAM || rsocketFrameType == FrameType.REQUEST_CHANNEL) {
+            NpmStreamWindow streamWindow = AnnotationUtils.findAnnotation(method, NpmStreamWindow.class);
+            if (streamWindow != null) {
+                stubMethod.setStreamWindowSize(streamWindow.value());
+                stubMethod.setStreamLowWaterMark(streamWindow.lowWaterMark());
+            }
+        }
+        //client side response cache
+        if (rsocketFrameType == FrameType.REQUEST_RESPONSE) {
+            NpmResponseCache responseCache = AnnotationUtils.findAnnotation(method, NpmResponseCache.class);
+            if (responseCache != null) {
+                stubMethod.setResponseCacheTtl(Math.max(responseCache.ttl(), 0));
+                stubMethod.setResponseCacheMaxSize(responseCache.maxSize());
+            }
+        }
+        //fire-and-forget batch
+        if (rsocketFrameType == FrameType.REQUEST_FNF) {
+            NpmFireAndForgetBatch batch = AnnotationUtils.findAnnotation(method, NpmFireAndForgetBatch.class);
+            if (batch != null) {
+                stubMethod.setBatchMaxSize(Math.max(batch.maxSize(), 1));
+                stubMethod.setBatchMaxDelay(Math.max(batch.maxDelay(), 0));
+            }
+        }
+        return stubMethod;
+    }
+
+    public static Class<?> parseInferredClass(Type genericType) {
+        Class<?> inferredClass = null;
+        if (genericType instanceof ParameterizedType) {
+            ParameterizedType type = (ParameterizedType) genericType;
+            Type[] typeArguments = type.getActualTypeArguments();
+            if (typeArguments.length > 0) {
+                final Type typeArgument = typeArguments[0];
+                if (typeArgument instanceof ParameterizedType) {
+                    inferredClass = (Class<?>) ((ParameterizedType) typeArgument).getActualTypeArguments()[0];
+                } else {
+                    inferredClass = (Class<?>) typeArgument;
+                }
+            }
+        }
+        if (inferredClass == null && genericType instanceof Class) {
+            inferredClass = (Class<?>) genericType;
+        }
+        return inferredClass;
+    }
+}
@@ -1,8 +1,8 @@
 package org.mvnsearch.boot.npm.export.rsocket.generator;
 
+import io.rsocket.frame.FrameType;
 import org.intellij.lang.annotations.Language;
 
-import java.lang.reflect.Field;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -17,16 +17,48 @@ public class TypeScriptDeclarationGenerator extends BaseGenerator implements Jav
         super(controllerClass);
     }
 
+    public TypeScriptDeclarationGenerator(RSocketServiceStubModel stubModel) {
+        super(stubModel);
+    }
+
     public String generate() {
         @Language(value = "TypeScript", suffix = "}")
         String global = "declare interface XxxService {\n" +
+                "    /**\n" +
+                "     * RSocket data MIME type for setup frame\n" +
+                "     */\n" +
+                "    readonly dataMimeType: string;\n\n" +
                 "    /**\n" +
                 "     * set Promise RSocket\n" +
                 "     * @param promiseRSocket Promise RSocket\n" +
                 "     */\n" +
-                "    setPromiseRSocket(promiseRSocket: Promise<any>): XxxService;\n\n";
+                "    setPromiseRSocket(promiseRSocket: Promise<any>): XxxService;\n\n" +
+                "    /**\n" +
+                "     * set RSocket pool, and every request acquires RSocket from pool\n" +
+                "     * @param rsocketPool RSocket pool, such as RSocketConnectionPool from connection.js\n" +
+                "     */\n" +
+                "    setRSocketPool(rsocketPool: { acquire(): Promise<any> }): XxxService;\n\n" +
+                "    /**\n" +
+                "     * set default demand window for requestStream and requestChannel\n" +
+                "     * @param size request N for every window\n" +
+                "     * @param lowWaterMark refill demand when outstanding elements drop to this mark\n" +
+                "     */\n" +
+                "    setStreamWindow(size: number, lowWaterMark?: number): XxxService;\n\n";
         StringBuilder builder = new StringBuilder();
         builder.append(global.replaceAll("XxxService", jsClassName));
+        if (jsHttpStubMethods.stream().anyMatch(JsRSocketStubMethod::isResponseCached)) {
+            builder.append("    /**\n" +
+                    "     * clear cached responses\n" +
+                    "     * @param methodName method name, all methods if absent\n" +
+                    "     */\n" +
+                    "    clearResponseCache(methodName?: string): " + jsClassName + ";\n\n");
+        }
+        if (jsHttpStubMethods.stream().anyMatch(JsRSocketStubMethod::isBatched)) {
+            builder.append("    /**\n" +
+                    "     * send all buffered fireAndForget calls\n" +
+                    "     */\n" +
+                    "    flushBatches(): Promise<boolean>;\n\n");
+        }
         for (JsRSocketStubMethod stubMethod : jsHttpStubMethods) {
             builder.append(toTypeScriptDeclarationMethod(stubMethod) + "\n\n");
         }
@@ -34,6 +66,21 @@ public class TypeScriptDeclarationGenerator extends BaseGenerator implements Jav
         builder.append("declare const rsocketService: " + jsClassName + ";\n" +
                 "export default rsocketService;\n\n");
         builder.append("export function setPromiseRSocket(promiseRSocket: Promise<any>): " + jsClassName + ";\n\n");
+        builder.append("export function setRSocketPool(rsocketPool: { acquire(): Promise<any> }): " + jsClassName + ";\n\n");
+        builder.append("export function setStreamWindow(size: number, lowWaterMark?: number): " + jsClassName + ";\n\n");
+        if (jsHttpStubMethods.stream().anyMatch(JsRSocketStubMethod::isResponseCached)) {
+            builder.append("export function clearResponseCache(methodName?: string): " + jsClassName + ";\n\n");
+        }
+        if (jsHttpStubMethods.stream().anyMatch(JsRSocketStubMethod::isBatched)) {
+            builder.append("export function flushBatches(): Promise<boolean>;\n\n");
+        }
+        for (JsRSocketStubMethod stubMethod : getExportedStubMethods()) {
+            builder.append("export function " + toTypeScriptDeclarationMethod(stubMethod).trim() + "\n\n");
+        }
+        builder.append("export interface StreamWindow {\n" +
+                "    size: number;\n" +
+                "    lowWaterMark?: number;\n" +
+                "}\n\n");
         builder.append(typeScriptClasses());
         return builder.toString();
     }
@@ -47,10 +94,8 @@ public class TypeScriptDeclarationGenerator extends BaseGenerator implements Jav
                     .collect(Collectors.joining(", "));
             builder.append(paramsDeclare);
         }
-        //java bean type
-        String jsReturnType = stubMethod.getJsReturnType();
-        if (stubMethod.getJsDocTypeDef() == null && jsReturnType.contains("_")) {
-            this.javaBeanTypeDefMap.put(stubMethod.getReturnType(), jsReturnType);
+        if (stubMethod.getFrameType() == FrameType.REQUEST_STREAM || stubMethod.getFrameType() == FrameType.REQUEST_CHANNEL) {
+            builder.append(stubMethod.getParams().isEmpty() ? "streamWindow?: StreamWindow" : ", streamWindow?: StreamWindow");
         }
         builder.append("): Promise<" + toTsType(stubMethod.getJsReturnType()) + ">;");
         return builder.toString();
@@ -60,10 +105,9 @@ public class TypeScriptDeclarationGenerator extends BaseGenerator implements Jav
         StringBuilder builder = new StringBuilder();
         builder.append("//================ TypeScript Class ========================//\n");
         for (Map.Entry<Class<?>, String> entry : javaBeanTypeDefMap.entrySet()) {
-            Class<?> clazz = entry.getKey();
             builder.append("declare class " + entry.getValue() + " {\n");
-            for (Field field : clazz.getDeclaredFields()) {
-                builder.append("  " + field.getName() + ": " + toTsType(toJsType(field.getType()) + "\n"));
+            for (Map.Entry<String, String> property : stubModel.getTypeDefProperties(entry.getKey()).entrySet()) {
+                builder.append("  " + property.getKey() + ": " + toTsType(property.getValue()) + "\n");
             }
             builder.append("}\n\n");
         }
@@ -0,0 +1,40 @@
+package org.mvnsearch.boot.npm.export.analytics;
+
+import org.mvnsearch.boot.npm.export.demo.Account;
+import org.mvnsearch.boot.npm.export.rsocket.NpmFireAndForgetBatch;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.stereotype.Controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * analytics service with fire-and-forget batch, shared by batch controller and generator tests
+ *
+ * @author linux_china
+ */
+@Controller
+@MessageMapping("org.mvnsearch.analytics.AnalyticsService")
+public class AnalyticsService {
+    private final List<Account> accounts = new ArrayList<>();
+    private final List<Account> deleted = new ArrayList<>();
+
+    @MessageMapping("track")
+    @NpmFireAndForgetBatch(maxSize = 10)
+    public void track(Account account) {
+        accounts.add(account);
+    }
+
+    @MessageMapping("delete")
+    public void delete(Account account) {
+        deleted.add(account);
+    }
+
+    public List<Account> getAccounts() {
+        return accounts;
+    }
+
+    public List<Account> getDeleted() {
+        return deleted;
+    }
+}
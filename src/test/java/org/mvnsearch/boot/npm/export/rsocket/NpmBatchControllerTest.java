@@ -0,0 +1,76 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import io.rsocket.frame.FrameType;
+import org.junit.jupiter.api.Test;
+import org.mvnsearch.boot.npm.export.analytics.AnalyticsService;
+import org.mvnsearch.boot.npm.export.demo.Account;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.handler.DestinationPatternsMessageCondition;
+import org.springframework.messaging.handler.invocation.reactive.HandlerMethodReturnValueHandler;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketFrameTypeMessageCondition;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * NpmBatchController test
+ *
+ * @author linux_china
+ */
+public class NpmBatchControllerTest {
+
+    @Test
+    public void testBatch() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(AnalyticsService.class);
+        context.registerBean(RSocketExportedServiceRegistry.class);
+        context.registerBean(NpmBatchController.class);
+        context.registerBean(RSocketMessageHandler.class, () -> {
+            RSocketMessageHandler handler = new RSocketMessageHandler();
+            handler.setRSocketStrategies(RSocketStrategies.builder()
+                    .encoders(encoders -> encoders.add(new Jackson2JsonEncoder()))
+                    .decoders(decoders -> decoders.add(new Jackson2JsonDecoder()))
+                    .build());
+            return handler;
+        });
+        context.refresh();
+        RSocketMessageHandler messageHandler = context.getBean(RSocketMessageHandler.class);
+        AnalyticsService analyticsService = context.getBean(AnalyticsService.class);
+        NpmBatchRequest batchRequest = new NpmBatchRequest();
+        batchRequest.setRoute("org.mvnsearch.analytics.AnalyticsService.track");
+        batchRequest.setItems(Arrays.asList(Collections.singletonMap("nick", "Jackie"), Collections.singletonMap("nick", "Tom")));
+        messageHandler.handleMessage(batchMessage(messageHandler, batchRequest)).block();
+        assertThat(analyticsService.getAccounts()).extracting(Account::getNick).containsExactly("Jackie", "Tom");
+        // method without @NpmFireAndForgetBatch is not allowed
+        batchRequest.setRoute("org.mvnsearch.analytics.AnalyticsService.delete");
+        messageHandler.handleMessage(batchMessage(messageHandler, batchRequest)).block();
+        assertThat(analyticsService.getDeleted()).isEmpty();
+        context.close();
+    }
+
+    private Message<DataBuffer> batchMessage(RSocketMessageHandler handler, NpmBatchRequest batchRequest) {
+        RSocketStrategies strategies = handler.getRSocketStrategies();
+        ResolvableType type = ResolvableType.forInstance(batchRequest);
+        DataBuffer data = strategies.<NpmBatchRequest>encoder(type, MimeTypeUtils.APPLICATION_JSON)
+                .encodeValue(batchRequest, strategies.dataBufferFactory(), type, MimeTypeUtils.APPLICATION_JSON, null);
+        MessageHeaderAccessor accessor = new MessageHeaderAccessor();
+        accessor.setLeaveMutable(true);
+        accessor.setHeader(DestinationPatternsMessageCondition.LOOKUP_DESTINATION_HEADER, handler.getRouteMatcher().parseRoute(NpmFireAndForgetBatch.ROUTE));
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setHeader(RSocketFrameTypeMessageCondition.FRAME_TYPE_HEADER, FrameType.REQUEST_FNF);
+        accessor.setHeader(HandlerMethodReturnValueHandler.DATA_BUFFER_FACTORY_HEADER, strategies.dataBufferFactory());
+        return MessageBuilder.createMessage(data, accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,42 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import org.junit.jupiter.api.Test;
+import org.mvnsearch.boot.npm.export.demo.AccountServiceImpl;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * NpmExportEndpoint test
+ *
+ * @author linux_china
+ */
+public class NpmExportEndpointTest {
+
+    @Test
+    public void testServices() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(AccountServiceImpl.class);
+        context.registerBean(RSocketExportedServiceRegistry.class);
+        context.refresh();
+        NpmPackageCache packageCache = new NpmPackageCache(4);
+        packageCache.put(new NpmPackageArchive("@demo/AccountService", "2020.04.01", new byte[]{1, 2, 3}));
+        // archives of other packages
+        packageCache.put(new NpmPackageArchive("@other/AccountService", "2020.04.01", new byte[]{1}));
+        packageCache.put(new NpmPackageArchive("@demo/bundle", "2020.04.01", new byte[]{1}));
+        NpmExportEndpoint endpoint = new NpmExportEndpoint(context.getBean(RSocketExportedServiceRegistry.class), packageCache, "demo");
+        List<NpmExportEndpoint.ServiceDescriptor> services = endpoint.services();
+        assertThat(services).hasSize(1);
+        NpmExportEndpoint.ServiceDescriptor service = services.get(0);
+        assertThat(service.getSimpleName()).isEqualTo("AccountService");
+        assertThat(service.getMethods()).extracting(NpmExportEndpoint.MethodDescriptor::getRoute)
+                .contains("org.mvnsearch.user.AccountService.findById");
+        assertThat(service.getPackageName()).isEqualTo("@demo/AccountService");
+        assertThat(service.getPackages()).extracting(NpmExportEndpoint.PackageDescriptor::getPackageName).containsExactly("@demo/AccountService");
+        assertThat(service.getPackages().get(0).getSize()).isEqualTo(3);
+        assertThat(endpoint.service("UserService")).isNull();
+        context.close();
+    }
+}
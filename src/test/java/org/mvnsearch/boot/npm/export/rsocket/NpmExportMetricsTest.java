@@ -0,0 +1,64 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mvnsearch.boot.npm.export.demo.AccountServiceImpl;
+import org.mvnsearch.boot.npm.export.rsocket.generator.RSocketServiceStubModel;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * NpmExportMetrics test
+ *
+ * @author linux_china
+ */
+public class NpmExportMetricsTest {
+
+    @Test
+    public void testStageTimers() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        NpmPackageBuilder packageBuilder = new NpmPackageBuilder("user-service-demo");
+        packageBuilder.setMetrics(new NpmExportMetrics(meterRegistry));
+        packageBuilder.build("@UserService/AccountService", "1.0.0", "org.mvnsearch.user.AccountService", RSocketServiceStubModel.of(AccountServiceImpl.class));
+        for (String stage : new String[]{NpmExportMetrics.STAGE_PACKAGE_JSON, NpmExportMetrics.STAGE_JAVASCRIPT, NpmExportMetrics.STAGE_TYPESCRIPT, NpmExportMetrics.STAGE_ARCHIVE}) {
+            assertThat(meterRegistry.get(NpmExportMetrics.STAGE_TIMER).tag("package", "@UserService/AccountService").tag("stage", stage).timer().count())
+                    .isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void testMetersReused() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        NpmExportMetrics metrics = new NpmExportMetrics(meterRegistry);
+        metrics.cacheMiss("@demo/AccountService");
+        metrics.recordStage("@demo/AccountService", NpmExportMetrics.STAGE_LOOKUP, System.nanoTime());
+        int meterCount = meterRegistry.getMeters().size();
+        for (int i = 0; i < 10; i++) {
+            metrics.cacheHit("@demo/AccountService");
+            metrics.recordStage("@demo/AccountService", NpmExportMetrics.STAGE_LOOKUP, System.nanoTime());
+            metrics.served("@demo/AccountService", 100);
+            metrics.notModified("@demo/AccountService");
+        }
+        assertThat(meterRegistry.getMeters()).hasSize(meterCount);
+        assertThat(meterRegistry.get(NpmExportMetrics.CACHE_COUNTER).tag("result", "hit").counter().count()).isEqualTo(10);
+        assertThat(meterRegistry.get(NpmExportMetrics.SERVED_SUMMARY).summary().totalAmount()).isEqualTo(1000);
+    }
+
+    @Test
+    public void testBundleTag() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        NpmPackageBuilder packageBuilder = new NpmPackageBuilder("user-service-demo");
+        packageBuilder.setMetrics(new NpmExportMetrics(meterRegistry));
+        RSocketServiceStubModel stubModel = RSocketServiceStubModel.of(AccountServiceImpl.class);
+        packageBuilder.buildBundle("@UserService/bundle", null, Collections.singletonMap("org.mvnsearch.user.AccountService", stubModel), NpmArchiveFormat.TGZ);
+        packageBuilder.buildBundle("@demo/bundle", null, Collections.singletonMap("org.mvnsearch.user.AccountService", stubModel), NpmArchiveFormat.TGZ);
+        // bundle names are chosen by clients, and all bundles share one tag value
+        assertThat(meterRegistry.get(NpmExportMetrics.STAGE_TIMER).tag("stage", NpmExportMetrics.STAGE_ARCHIVE).timers())
+                .extracting(timer -> timer.getId().getTag("package"))
+                .containsExactly(NpmExportMetrics.BUNDLE_PACKAGE_TAG);
+        assertThat(meterRegistry.get(NpmExportMetrics.STAGE_TIMER).tag("package", NpmExportMetrics.BUNDLE_PACKAGE_TAG)
+                .tag("stage", NpmExportMetrics.STAGE_ARCHIVE).timer().count()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,153 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.junit.jupiter.api.Test;
+import org.mvnsearch.boot.npm.export.demo.Account;
+import org.mvnsearch.boot.npm.export.demo.AccountServiceImpl;
+import org.mvnsearch.boot.npm.export.rsocket.generator.RSocketServiceStubModel;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.util.StreamUtils;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * NpmPackageBuilder test
+ *
+ * @author linux_china
+ */
+public class NpmPackageBuilderTest {
+    private final NpmPackageBuilder packageBuilder = new NpmPackageBuilder("user-service-demo");
+
+    @Test
+    public void testBuild() throws Exception {
+        NpmPackageArchive archive = packageBuilder.build("@UserService/AccountService", "1.0.0", "org.mvnsearch.user.AccountService", RSocketServiceStubModel.of(AccountServiceImpl.class));
+        assertThat(entryNames(archive.getContent())).containsExactly("AccountService/package.json", "AccountService/index.js", "AccountService/index.mjs", "AccountService/index.d.ts");
+        // reproducible tarball
+        NpmPackageArchive another = packageBuilder.build("@UserService/AccountService", "1.0.0", "org.mvnsearch.user.AccountService", RSocketServiceStubModel.of(AccountServiceImpl.class));
+        assertThat(another.getContentHash()).isEqualTo(archive.getContentHash());
+    }
+
+    @Test
+    public void testContentHashVersion() throws Exception {
+        RSocketServiceStubModel stubModel = RSocketServiceStubModel.of(AccountServiceImpl.class);
+        NpmPackageArchive tgz = packageBuilder.build("@UserService/AccountService", null, "org.mvnsearch.user.AccountService", stubModel);
+        assertThat(tgz.getVersion()).matches("0\\.0\\.0-g[0-9a-f]{12}");
+        assertThat(NpmPackageBuilder.readPackageJson(tgz.getContent())).contains("\"version\": \"" + tgz.getVersion() + "\"");
+        assertThat(tgz.getIntegrity()).startsWith("sha512-").hasSize(7 + 88);
+        assertThat(tgz.getShasum()).hasSize(40);
+        // same content, same version for all formats
+        NpmPackageArchive tar = packageBuilder.build("@UserService/AccountService", "", "org.mvnsearch.user.AccountService", stubModel, NpmArchiveFormat.TAR);
+        assertThat(tar.getVersion()).isEqualTo(tgz.getVersion());
+        assertThat(tarEntryContent(tar.getContent(), "AccountService/index.js")).contains("@version " + tgz.getVersion());
+        // different content, different version
+        NpmPackageBuilder minifyBuilder = new NpmPackageBuilder("user-service-demo");
+        minifyBuilder.setMinify(true);
+        assertThat(minifyBuilder.build("@UserService/AccountService", null, "org.mvnsearch.user.AccountService", stubModel).getVersion())
+                .isNotEqualTo(tgz.getVersion());
+    }
+
+    @Test
+    public void testBuildTarAndCompressionLevel() throws Exception {
+        RSocketServiceStubModel stubModel = RSocketServiceStubModel.of(AccountServiceImpl.class);
+        NpmPackageArchive tar = packageBuilder.build("@UserService/AccountService", "1.0.0", "org.mvnsearch.user.AccountService", stubModel, NpmArchiveFormat.TAR);
+        assertThat(tar.getFormat()).isEqualTo(NpmArchiveFormat.TAR);
+        assertThat(tarEntryNames(tar.getContent())).containsExactly("AccountService/package.json", "AccountService/index.js", "AccountService/index.mjs", "AccountService/index.d.ts");
+        NpmPackageBuilder bestCompressionBuilder = new NpmPackageBuilder("user-service-demo");
+        bestCompressionBuilder.setCompressionLevel(Deflater.BEST_COMPRESSION);
+        NpmPackageArchive tgz = bestCompressionBuilder.build("@UserService/AccountService", "1.0.0", "org.mvnsearch.user.AccountService", stubModel);
+        assertThat(tgz.getSize()).isLessThan(tar.getSize());
+        assertThat(NpmPackageBuilder.gunzip(tgz.getContent())).isEqualTo(tar.getContent());
+    }
+
+    @Test
+    public void testBuildWithConnectionPool() throws Exception {
+        NpmPackageBuilder poolBuilder = new NpmPackageBuilder("user-service-demo");
+        poolBuilder.setConnectionPool(true);
+        NpmPackageArchive archive = poolBuilder.build("@UserService/AccountService", "1.0.0", "org.mvnsearch.user.AccountService", RSocketServiceStubModel.of(AccountServiceImpl.class));
+        assertThat(entryNames(archive.getContent())).contains("AccountService/connection.js", "AccountService/connection.d.ts");
+    }
+
+    @Test
+    public void testBuildModuleFormatsAndMinify() throws Exception {
+        RSocketServiceStubModel stubModel = RSocketServiceStubModel.of(AccountServiceImpl.class);
+        NpmPackageArchive archive = packageBuilder.build("@UserService/AccountService", "1.0.0", "org.mvnsearch.user.AccountService", stubModel, NpmArchiveFormat.TAR);
+        String packageJson = tarEntryContent(archive.getContent(), "AccountService/package.json");
+        assertThat(packageJson).contains("\"module\": \"index.mjs\"", "\"import\": \"./index.mjs\"", "\"require\": \"./index.js\"");
+        String indexJs = tarEntryContent(archive.getContent(), "AccountService/index.js");
+        assertThat(indexJs).contains("module.exports = new AccountService();");
+        assertThat(tarEntryContent(archive.getContent(), "AccountService/index.mjs")).contains("export function findById(id) {", "export default /*#__PURE__*/ Object.assign(service, {");
+        NpmPackageBuilder minifyBuilder = new NpmPackageBuilder("user-service-demo");
+        minifyBuilder.setMinify(true);
+        NpmPackageArchive minified = minifyBuilder.build("@UserService/AccountService", "1.0.0", "org.mvnsearch.user.AccountService", stubModel, NpmArchiveFormat.TAR);
+        String minifiedJs = tarEntryContent(minified.getContent(), "AccountService/index.js");
+        assertThat(minifiedJs).doesNotContain("/**", "@typedef").contains("module.exports = new AccountService();");
+        assertThat(minifiedJs.length()).isLessThan(indexJs.length() / 2);
+    }
+
+    @Test
+    public void testBuildBundle() throws Exception {
+        Map<String, RSocketServiceStubModel> services = new LinkedHashMap<>();
+        services.put("org.mvnsearch.user.AccountService", RSocketServiceStubModel.of(AccountServiceImpl.class));
+        NpmPackageArchive bundle = packageBuilder.buildBundle("@UserService/bundle", "1.0.0", services, NpmArchiveFormat.TGZ);
+        assertThat(entryNames(bundle.getContent())).containsExactly("bundle/package.json", "bundle/runtime.js",
+                "bundle/AccountService.js", "bundle/AccountService.d.ts", "bundle/index.js", "bundle/index.d.ts");
+        services.put("org.mvnsearch.user.CborService", RSocketServiceStubModel.of(CborService.class));
+        assertThatThrownBy(() -> packageBuilder.buildBundle("@UserService/bundle", "1.0.0", services, NpmArchiveFormat.TGZ))
+                .isInstanceOf(NpmDataCodecConflictException.class);
+    }
+
+    @Test
+    public void testInvalidCompressionLevel() {
+        assertThatThrownBy(() -> packageBuilder.setCompressionLevel(10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> packageBuilder.setCompressionLevel(-2)).isInstanceOf(IllegalArgumentException.class);
+        packageBuilder.setCompressionLevel(-1);
+        assertThat(packageBuilder.getCompressionLevel()).isEqualTo(-1);
+    }
+
+    @NpmPackage(codec = NpmDataCodec.CBOR)
+    @MessageMapping("org.mvnsearch.user.CborService")
+    public static class CborService {
+        @MessageMapping("findById")
+        public Mono<Account> findById(Integer id) {
+            return Mono.empty();
+        }
+    }
+
+    public static List<String> entryNames(byte[] tarball) throws Exception {
+        return tarEntryNames(NpmPackageBuilder.gunzip(tarball));
+    }
+
+    private static String tarEntryContent(byte[] tar, String name) throws Exception {
+        try (TarArchiveInputStream tarIn = new TarArchiveInputStream(new ByteArrayInputStream(tar))) {
+            TarArchiveEntry entry;
+            while ((entry = tarIn.getNextTarEntry()) != null) {
+                if (entry.getName().equals(name)) {
+                    return StreamUtils.copyToString(tarIn, StandardCharsets.UTF_8);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<String> tarEntryNames(byte[] tar) throws Exception {
+        List<String> names = new ArrayList<>();
+        try (TarArchiveInputStream tarIn = new TarArchiveInputStream(new ByteArrayInputStream(tar))) {
+            TarArchiveEntry entry;
+            while ((entry = tarIn.getNextTarEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+        return names;
+    }
+}
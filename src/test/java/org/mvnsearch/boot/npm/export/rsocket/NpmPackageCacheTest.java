@@ -0,0 +1,47 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * NpmPackageCache test
+ *
+ * @author linux_china
+ */
+public class NpmPackageCacheTest {
+
+    @Test
+    public void testEvictEldest() {
+        NpmPackageCache cache = new NpmPackageCache(2);
+        cache.put(new NpmPackageArchive("@UserService/AccountService", "1.0.0", new byte[]{1}));
+        cache.put(new NpmPackageArchive("@UserService/UserService", "1.0.0", new byte[]{2}));
+        // touch AccountService to make UserService the eldest one
+        assertThat(cache.get("@UserService/AccountService", "1.0.0")).isNotNull();
+        cache.put(new NpmPackageArchive("@UserService/OrderService", "1.0.0", new byte[]{3}));
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("@UserService/UserService", "1.0.0")).isNull();
+        assertThat(cache.get("@UserService/AccountService", "1.0.0")).isNotNull();
+        assertThat(cache.get("@UserService/AccountService", "1.0.1")).isNull();
+    }
+
+    @Test
+    public void testLatest() {
+        NpmPackageCache cache = new NpmPackageCache(2);
+        cache.put(new NpmPackageArchive("@UserService/AccountService", "1.0.0", new byte[]{1}));
+        cache.put(new NpmPackageArchive("@UserService/AccountService", "1.0.1", new byte[]{2}));
+        assertThat(cache.getLatest("@UserService/AccountService", NpmArchiveFormat.TGZ).getVersion()).isEqualTo("1.0.1");
+        assertThat(cache.getLatest("@UserService/AccountService", NpmArchiveFormat.TAR)).isNull();
+        // latest versions are bounded as archives
+        cache.put(new NpmPackageArchive("@UserService/UserService", "1.0.0", new byte[]{3}));
+        cache.put(new NpmPackageArchive("@UserService/OrderService", "1.0.0", new byte[]{4}));
+        assertThat(cache.getLatest("@UserService/AccountService", NpmArchiveFormat.TGZ)).isNull();
+    }
+
+    @Test
+    public void testDisabled() {
+        NpmPackageCache cache = new NpmPackageCache(0);
+        cache.put(new NpmPackageArchive("@UserService/AccountService", "1.0.0", new byte[]{1}));
+        assertThat(cache.get("@UserService/AccountService", "1.0.0")).isNull();
+    }
+}
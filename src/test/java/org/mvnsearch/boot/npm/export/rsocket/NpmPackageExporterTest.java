@@ -0,0 +1,43 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * NpmPackageExporter test
+ *
+ * @author linux_china
+ */
+public class NpmPackageExporterTest {
+
+    @Test
+    public void testExport(@TempDir File outputDir) throws Exception {
+        List<File> tarballs = new NpmPackageExporter(outputDir, "UserService").export("org.mvnsearch.boot.npm.export.demo");
+        assertThat(tarballs).containsExactly(new File(outputDir, "META-INF/npm/AccountService.tgz"));
+        assertThat(tarballs.get(0)).exists();
+    }
+
+    @Test
+    public void testExportWithApplicationProperties(@TempDir File outputDir) throws Exception {
+        Files.write(new File(outputDir, "application.properties").toPath(), Arrays.asList("spring.application.name=demo",
+                "npm.export.rsocket.connection-pool=true", "npm.export.rsocket.minify=true"));
+        Properties applicationProperties = NpmPackageExporter.applicationProperties(outputDir, Arrays.asList(outputDir.getPath(), "--npm.export.rsocket.codec=cbor"));
+        NpmRSocketExportProperties properties = NpmPackageExporter.exportProperties(applicationProperties);
+        assertThat(properties.getCodec()).isEqualTo(NpmDataCodec.CBOR);
+        assertThat(properties.isConnectionPool()).isTrue();
+        assertThat(properties.isMinify()).isTrue();
+        List<File> tarballs = new NpmPackageExporter(outputDir, applicationProperties.getProperty("spring.application.name"), properties)
+                .export("org.mvnsearch.boot.npm.export.demo");
+        String tar = new String(NpmPackageBuilder.gunzip(Files.readAllBytes(tarballs.get(0).toPath())), StandardCharsets.UTF_8);
+        assertThat(tar).contains("\"name\": \"@demo/AccountService\"", "AccountService/connection.js", "application/cbor");
+    }
+}
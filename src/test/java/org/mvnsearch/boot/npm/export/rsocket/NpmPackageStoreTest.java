@@ -0,0 +1,94 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mvnsearch.boot.npm.export.demo.AccountServiceImpl;
+import org.mvnsearch.boot.npm.export.rsocket.generator.BaseGenerator;
+import org.mvnsearch.boot.npm.export.rsocket.generator.JSDocTypeDef;
+import org.mvnsearch.boot.npm.export.rsocket.generator.JavaToJsTypeConverter;
+import org.mvnsearch.boot.npm.export.rsocket.generator.JsParam;
+import org.mvnsearch.boot.npm.export.rsocket.generator.JsRSocketStubMethod;
+import org.mvnsearch.boot.npm.export.rsocket.generator.ModuleFormat;
+import org.mvnsearch.boot.npm.export.rsocket.generator.RSocketServiceJavaScriptStubGenerator;
+import org.mvnsearch.boot.npm.export.rsocket.generator.RSocketServiceStubModel;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * NpmPackageStore test
+ *
+ * @author linux_china
+ */
+public class NpmPackageStoreTest {
+    private final NpmPackageBuilder packageBuilder = new NpmPackageBuilder("user-service-demo");
+
+    @Test
+    public void testPutAndGet(@TempDir Path directory) throws Exception {
+        RSocketServiceStubModel stubModel = RSocketServiceStubModel.of(AccountServiceImpl.class);
+        String fingerprint = packageBuilder.fingerprint("@UserService/AccountService", null, NpmArchiveFormat.TGZ, Collections.singletonList(stubModel));
+        assertThat(fingerprint).hasSize(64);
+        NpmPackageArchive archive = packageBuilder.build("@UserService/AccountService", null, "org.mvnsearch.user.AccountService", stubModel);
+        NpmPackageArchive stored = new NpmPackageStore(directory, 16, Duration.ofDays(1)).put(fingerprint, archive);
+        assertThat(stored.getFile()).isNotNull();
+        assertThat(stored.getContent()).isEqualTo(archive.getContent());
+        // new store on same directory, such as restart
+        NpmPackageArchive restored = new NpmPackageStore(directory, 16, Duration.ofDays(1)).get(fingerprint);
+        assertThat(restored).isNotNull();
+        assertThat(restored.getVersion()).isEqualTo(archive.getVersion());
+        assertThat(restored.getContentHash()).isEqualTo(archive.getContentHash());
+        assertThat(restored.getIntegrity()).isEqualTo(archive.getIntegrity());
+        assertThat(restored.getSize()).isEqualTo(archive.getSize());
+        assertThat(restored.getManifest()).isEqualTo(archive.getManifest()).containsEntry("version", archive.getVersion());
+        // settings changed, fingerprint changed
+        packageBuilder.setMinify(true);
+        assertThat(packageBuilder.fingerprint("@UserService/AccountService", null, NpmArchiveFormat.TGZ, Collections.singletonList(stubModel)))
+                .isNotEqualTo(fingerprint);
+        // broken tarball is ignored
+        Files.write(restored.getFile(), new byte[]{1});
+        assertThat(new NpmPackageStore(directory, 16, Duration.ofDays(1)).get(fingerprint)).isNull();
+    }
+
+    @Test
+    public void testCleanUp(@TempDir Path directory) throws Exception {
+        RSocketServiceStubModel stubModel = RSocketServiceStubModel.of(AccountServiceImpl.class);
+        NpmPackageStore packageStore = new NpmPackageStore(directory, 1, Duration.ofDays(1));
+        String tgzFingerprint = packageBuilder.fingerprint("@UserService/AccountService", null, NpmArchiveFormat.TGZ, Collections.singletonList(stubModel));
+        packageStore.put(tgzFingerprint, packageBuilder.build("@UserService/AccountService", null, "org.mvnsearch.user.AccountService", stubModel));
+        Files.setLastModifiedTime(directory.resolve("index").resolve(tgzFingerprint + ".properties"), FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        String tarFingerprint = packageBuilder.fingerprint("@UserService/AccountService", null, NpmArchiveFormat.TAR, Collections.singletonList(stubModel));
+        packageStore.put(tarFingerprint, packageBuilder.build("@UserService/AccountService", null, "org.mvnsearch.user.AccountService", stubModel, NpmArchiveFormat.TAR));
+        // least recently used entry over max entries is removed with its tarball
+        assertThat(packageStore.get(tgzFingerprint)).isNull();
+        assertThat(packageStore.get(tarFingerprint)).isNotNull();
+        assertThat(fileCount(directory.resolve("tarballs"))).isEqualTo(1);
+        // entry not used within max age is removed
+        Files.setLastModifiedTime(directory.resolve("index").resolve(tarFingerprint + ".properties"), FileTime.fromMillis(System.currentTimeMillis() - Duration.ofDays(2).toMillis()));
+        packageStore.cleanUp();
+        assertThat(packageStore.get(tarFingerprint)).isNull();
+        assertThat(fileCount(directory.resolve("tarballs"))).isEqualTo(0);
+    }
+
+    private static long fileCount(Path directory) throws Exception {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.count();
+        }
+    }
+
+    @Test
+    public void testGeneratorBytecode() {
+        // all classes in generator package are part of fingerprint
+        String bytecode = new String(NpmPackageBuilder.generatorBytecode(), StandardCharsets.ISO_8859_1);
+        for (Class<?> clazz : new Class<?>[]{BaseGenerator.class, JavaToJsTypeConverter.class, JsRSocketStubMethod.class, JsParam.class,
+                JSDocTypeDef.class, ModuleFormat.class, RSocketServiceJavaScriptStubGenerator.class}) {
+            assertThat(bytecode).contains(clazz.getName().replace('.', '/'));
+        }
+    }
+}
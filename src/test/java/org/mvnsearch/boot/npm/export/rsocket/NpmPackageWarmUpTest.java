@@ -0,0 +1,70 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import org.junit.jupiter.api.Test;
+import org.mvnsearch.boot.npm.export.demo.AccountServiceImpl;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * NpmPackageWarmUp test
+ *
+ * @author linux_china
+ */
+public class NpmPackageWarmUpTest {
+
+    @Test
+    public void testWarmUp() {
+        AnnotationConfigApplicationContext context = warmUpContext();
+        NpmPackageWarmUp warmUp = new NpmPackageWarmUp(context.getBean(RSocketExportedServiceRegistry.class),
+                context.getBean(NpmRSocketExportController.class), 2);
+        NpmPackageWarmUpHealthIndicator healthIndicator = new NpmPackageWarmUpHealthIndicator(warmUp);
+        assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        warmUp.warmUp().block();
+        assertThat(warmUp.isCompleted()).isTrue();
+        assertThat(warmUp.isFailed()).isFalse();
+        assertThat(warmUp.getGenerated()).isEqualTo(1);
+        assertThat(context.getBean(NpmPackageCache.class).getArchives())
+                .extracting(NpmPackageArchive::getPackageName)
+                .containsExactly("@demo/AccountService");
+        assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.UP);
+        context.close();
+    }
+
+    @Test
+    public void testWarmUpFailed() {
+        AnnotationConfigApplicationContext context = warmUpContext();
+        // builds are rejected by disposed scheduler
+        context.getBean("npmExportScheduler", Scheduler.class).dispose();
+        NpmPackageWarmUp warmUp = new NpmPackageWarmUp(context.getBean(RSocketExportedServiceRegistry.class),
+                context.getBean(NpmRSocketExportController.class), 2);
+        NpmPackageWarmUpHealthIndicator healthIndicator = new NpmPackageWarmUpHealthIndicator(warmUp);
+        warmUp.warmUp().block();
+        assertThat(warmUp.isCompleted()).isTrue();
+        assertThat(warmUp.isFailed()).isTrue();
+        assertThat(warmUp.getGenerated()).isEqualTo(0);
+        assertThat(warmUp.getFailures()).containsOnlyKeys("org.mvnsearch.user.AccountService");
+        Health health = healthIndicator.health();
+        assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+        assertThat(health.getDetails()).containsKeys("failed", "generated", "total");
+        context.close();
+    }
+
+    private AnnotationConfigApplicationContext warmUpContext() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(AccountServiceImpl.class);
+        context.registerBean(RSocketExportedServiceRegistry.class);
+        context.registerBean(NpmPackageBuilder.class, () -> new NpmPackageBuilder("demo"));
+        context.registerBean(NpmPackageCache.class, () -> new NpmPackageCache(4));
+        context.registerBean(NpmExportMetrics.class, NpmExportMetrics::noop);
+        context.registerBean("npmExportScheduler", Scheduler.class, () -> Schedulers.newBoundedElastic(2, 16, "npm-export"),
+                beanDefinition -> beanDefinition.setDestroyMethodName("dispose"));
+        context.registerBean(NpmRSocketExportController.class);
+        context.refresh();
+        return context;
+    }
+}
@@ -0,0 +1,225 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.jetbrains.annotations.Nullable;
+import org.mvnsearch.boot.npm.export.demo.AccountServiceImpl;
+import org.mvnsearch.boot.npm.export.rsocket.generator.RSocketServiceStubModel;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * NpmRSocketExportController test
+ *
+ * @author linux_china
+ */
+public class NpmRSocketExportControllerTest {
+
+    @Test
+    public void testSingleFlightBuild() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AnnotationConfigApplicationContext context = context(new NpmExportMetrics(meterRegistry));
+        NpmRSocketExportController exportController = context.getBean(NpmRSocketExportController.class);
+        RSocketExportedService exportedService = context.getBean(RSocketExportedServiceRegistry.class).findService("AccountService");
+        List<NpmPackageArchive> archives = Flux.range(0, 50)
+                .flatMap(i -> exportController.npmPackageArchive(exportedService, NpmArchiveFormat.TGZ))
+                .collectList()
+                .block();
+        assertThat(archives).hasSize(50);
+        assertThat(archives).allMatch(archive -> archive == archives.get(0));
+        // 50 concurrent requests share one build
+        assertThat(meterRegistry.get(NpmExportMetrics.STAGE_TIMER).tag("stage", NpmExportMetrics.STAGE_ARCHIVE).timer().count()).isEqualTo(1);
+        context.close();
+    }
+
+    @Test
+    public void testCanonicalPackageName() {
+        AnnotationConfigApplicationContext context = context(NpmExportMetrics.noop());
+        NpmRSocketExportController exportController = context.getBean(NpmRSocketExportController.class);
+        // package is served under any scope
+        assertThat(get(exportController, "/npm/@UserService/AccountService")).isEqualTo(HttpStatus.OK);
+        assertThat(get(exportController, "/npm/x1/AccountService")).isEqualTo(HttpStatus.OK);
+        assertThat(get(exportController, "/npm/AccountService")).isEqualTo(HttpStatus.OK);
+        assertThat(get(exportController, "/npm/@UserService/OrderService")).isEqualTo(HttpStatus.NOT_FOUND);
+        // one archive cached with canonical name
+        assertThat(context.getBean(NpmPackageCache.class).getArchives())
+                .extracting(NpmPackageArchive::getPackageName)
+                .containsExactly("@demo/AccountService");
+        // bundle is named "bundle" under scope of application or @NpmPackage
+        assertThat(bundle(exportController, "/npm-bundle/@demo/bundle")).isEqualTo(HttpStatus.OK);
+        assertThat(bundle(exportController, "/npm-bundle/@UserService/bundle")).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(bundle(exportController, "/npm-bundle/@x1/bundle")).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(bundle(exportController, "/npm-bundle/@UserService/x1")).isEqualTo(HttpStatus.NOT_FOUND);
+        context.close();
+    }
+
+    @Test
+    public void testPackument() throws Exception {
+        AnnotationConfigApplicationContext context = context(NpmExportMetrics.noop());
+        NpmRSocketExportController exportController = context.getBean(NpmRSocketExportController.class);
+        RSocketExportedService exportedService = context.getBean(RSocketExportedServiceRegistry.class).findService("AccountService");
+        NpmPackageArchive archive = exportController.npmPackageArchive(exportedService, NpmArchiveFormat.TGZ).block();
+        // npm install
+        MockServerWebExchange exchange = exchange("/npm/@UserService/AccountService", NpmRSocketExportController.NPM_INSTALL_JSON + ", application/json;q=0.8, */*");
+        exportController.npmPackage("@UserService/AccountService", exchange).block();
+        assertThat(exchange.getResponse().getHeaders().getContentType().toString()).isEqualTo(NpmRSocketExportController.NPM_INSTALL_JSON);
+        assertThat(exchange.getResponse().getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT);
+        JsonNode packument = new ObjectMapper().readTree(exchange.getResponse().getBodyAsString().block());
+        assertThat(packument.path("name").asText()).isEqualTo("@UserService/AccountService");
+        assertThat(packument.path("dist-tags").path("latest").asText()).isEqualTo(archive.getVersion());
+        JsonNode manifest = packument.path("versions").path(archive.getVersion());
+        assertThat(manifest.path("name").asText()).isEqualTo("@demo/AccountService");
+        assertThat(manifest.path("module").asText()).isEqualTo("index.mjs");
+        assertThat(manifest.path("dist").path("integrity").asText()).isEqualTo(archive.getIntegrity());
+        assertThat(manifest.path("dist").path("shasum").asText()).isEqualTo(archive.getShasum());
+        String tarballUrl = manifest.path("dist").path("tarball").asText();
+        assertThat(tarballUrl).endsWith("/npm/@UserService/AccountService/-/AccountService-" + archive.getVersion() + ".tgz");
+        // npm view
+        exchange = exchange("/npm/@UserService/AccountService", "application/json");
+        exportController.npmPackage("@UserService/AccountService", exchange).block();
+        assertThat(exchange.getResponse().getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        // tarball is preferred
+        exchange = exchange("/npm/@UserService/AccountService", "application/json;q=0.5, application/tar+gzip");
+        exportController.npmPackage("@UserService/AccountService", exchange).block();
+        assertThat(exchange.getResponse().getHeaders().getContentType().toString()).isEqualTo(NpmArchiveFormat.TGZ.getMediaType());
+        assertThat(exchange.getResponse().getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT);
+        // tarball url in packument
+        String tarballPath = tarballUrl.substring(tarballUrl.indexOf("/npm/"));
+        exchange = exchange(tarballPath, "*/*");
+        exportController.npmPackage(tarballPath.substring("/npm/".length()), exchange).block();
+        assertThat(statusCode(exchange)).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getHeaders().getContentLength()).isEqualTo(archive.getSize());
+        // tarball of stale version
+        exchange = exchange("/npm/@UserService/AccountService/-/AccountService-0.0.0-g000000000000.tgz", "*/*");
+        exportController.npmPackage("@UserService/AccountService/-/AccountService-0.0.0-g000000000000.tgz", exchange).block();
+        assertThat(statusCode(exchange)).isEqualTo(HttpStatus.NOT_FOUND);
+        context.close();
+    }
+
+    @Test
+    public void testETag() {
+        AnnotationConfigApplicationContext context = context(NpmExportMetrics.noop());
+        NpmRSocketExportController exportController = context.getBean(NpmRSocketExportController.class);
+        String path = "/npm/@UserService/AccountService";
+        MockServerWebExchange exchange = exchange(path, "*/*");
+        exportController.npmPackage("@UserService/AccountService", exchange).block();
+        assertThat(statusCode(exchange)).isEqualTo(HttpStatus.OK);
+        String etag = exchange.getResponse().getHeaders().getETag();
+        // strong ETag from content hash
+        assertThat(etag).startsWith("\"").doesNotStartWith("W/");
+        // not modified
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path).ifNoneMatch(etag));
+        exportController.npmPackage("@UserService/AccountService", exchange).block();
+        assertThat(statusCode(exchange)).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(exchange.getResponse().getHeaders().getContentLength()).isEqualTo(-1);
+        // content changed
+        context.getBean(NpmPackageBuilder.class).setMinify(true);
+        context.getBean(NpmPackageCache.class).clear();
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path).ifNoneMatch(etag));
+        exportController.npmPackage("@UserService/AccountService", exchange).block();
+        assertThat(statusCode(exchange)).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getHeaders().getETag()).isNotEqualTo(etag);
+        context.close();
+    }
+
+    @Test
+    public void testBuildOnScheduler() {
+        AtomicReference<String> buildThread = new AtomicReference<>();
+        NpmPackageBuilder packageBuilder = new NpmPackageBuilder("demo") {
+            @Override
+            public NpmPackageArchive build(String packageName, @Nullable String version, String serviceName, RSocketServiceStubModel stubModel,
+                                           NpmArchiveFormat format) throws IOException {
+                buildThread.set(Thread.currentThread().getName());
+                return super.build(packageName, version, serviceName, stubModel, format);
+            }
+        };
+        AnnotationConfigApplicationContext context = context(packageBuilder, NpmExportMetrics.noop(), () -> Schedulers.newBoundedElastic(4, 64, "npm-export"));
+        assertThat(get(context.getBean(NpmRSocketExportController.class), "/npm/@UserService/AccountService")).isEqualTo(HttpStatus.OK);
+        assertThat(buildThread.get()).startsWith("npm-export");
+        context.close();
+    }
+
+    @Test
+    public void testBuildQueueFull() throws Exception {
+        AnnotationConfigApplicationContext context = context(new NpmPackageBuilder("demo"), NpmExportMetrics.noop(), () -> Schedulers.newBoundedElastic(1, 1, "npm-export"));
+        Scheduler scheduler = context.getBean(Scheduler.class);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // one busy build thread and one queued task
+        scheduler.schedule(() -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignore) {
+            }
+        });
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        scheduler.schedule(() -> {
+        });
+        MockServerWebExchange exchange = exchange("/npm/@UserService/AccountService", "*/*");
+        context.getBean(NpmRSocketExportController.class).npmPackage("@UserService/AccountService", exchange).block();
+        assertThat(statusCode(exchange)).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        release.countDown();
+        context.close();
+    }
+
+    private static MockServerWebExchange exchange(String path, String accept) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("http://localhost:8080" + path).header(HttpHeaders.ACCEPT, accept));
+    }
+
+    private static HttpStatus get(NpmRSocketExportController exportController, String path) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path));
+        exportController.npmPackage(path.substring("/npm/".length()), exchange).block();
+        return statusCode(exchange);
+    }
+
+    private static HttpStatus bundle(NpmRSocketExportController exportController, String path) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path));
+        exportController.npmBundle(path.substring("/npm-bundle/".length()), null, exchange).block();
+        return statusCode(exchange);
+    }
+
+    private static HttpStatus statusCode(MockServerWebExchange exchange) {
+        HttpStatus statusCode = exchange.getResponse().getStatusCode();
+        return statusCode == null ? HttpStatus.OK : statusCode;
+    }
+
+    private static AnnotationConfigApplicationContext context(NpmExportMetrics metrics) {
+        return context(new NpmPackageBuilder("demo"), metrics, () -> Schedulers.newBoundedElastic(4, 64, "npm-export"));
+    }
+
+    private static AnnotationConfigApplicationContext context(NpmPackageBuilder packageBuilder, NpmExportMetrics metrics, Supplier<Scheduler> scheduler) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(AccountServiceImpl.class);
+        context.registerBean(RSocketExportedServiceRegistry.class);
+        context.registerBean(NpmPackageBuilder.class, () -> {
+            packageBuilder.setMetrics(metrics);
+            return packageBuilder;
+        });
+        context.registerBean(NpmPackageCache.class, () -> new NpmPackageCache(4));
+        context.registerBean(NpmExportMetrics.class, () -> metrics);
+        context.registerBean("npmExportScheduler", Scheduler.class, scheduler, beanDefinition -> beanDefinition.setDestroyMethodName("dispose"));
+        context.registerBean(NpmRSocketExportController.class);
+        context.refresh();
+        return context;
+    }
+}
@@ -0,0 +1,96 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.rsocket.AbstractRSocket;
+import io.rsocket.ConnectionSetupPayload;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.frame.FrameType;
+import io.rsocket.metadata.CompositeMetadataFlyweight;
+import io.rsocket.metadata.TaggingMetadataFlyweight;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.util.DefaultPayload;
+import org.junit.jupiter.api.Test;
+import org.mvnsearch.boot.npm.export.demo.AccountServiceImpl;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * NpmRSocketRouteMetrics test
+ *
+ * @author linux_china
+ */
+public class NpmRSocketRouteMetricsTest {
+
+    @Test
+    public void testRouteMetricsRequireMeterRegistry() {
+        ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(NpmRSocketExportAutoConfiguration.class))
+                .withPropertyValues("npm.export.rsocket.route-metrics.enabled=true");
+        contextRunner.run(context -> assertThat(context).doesNotHaveBean(NpmRSocketRouteMetrics.class));
+        contextRunner.withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+                .run(context -> assertThat(context).hasSingleBean(NpmRSocketRouteMetrics.class));
+    }
+
+    @Test
+    public void testRouteMetrics() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(AccountServiceImpl.class);
+        context.registerBean(RSocketExportedServiceRegistry.class);
+        context.refresh();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        NpmRSocketRouteMetrics routeMetrics = new NpmRSocketRouteMetrics(context.getBean(RSocketExportedServiceRegistry.class), meterRegistry);
+        RSocket responder = new AbstractRSocket() {
+            @Override
+            public Mono<Payload> requestResponse(Payload payload) {
+                return Mono.just(DefaultPayload.create("{}"));
+            }
+
+            @Override
+            public Flux<Payload> requestStream(Payload payload) {
+                return Flux.range(0, 3).map(i -> DefaultPayload.create("{}"));
+            }
+        };
+        ConnectionSetupPayload setup = mock(ConnectionSetupPayload.class);
+        when(setup.metadataMimeType()).thenReturn(WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString());
+        RSocket metered = routeMetrics.apply((setupPayload, sendingSocket) -> Mono.just(responder)).accept(setup, responder).block();
+        metered.requestResponse(payload("org.mvnsearch.user.AccountService.findById")).block();
+        metered.requestStream(payload("org.mvnsearch.user.AccountService.findAll")).blockLast();
+        metered.requestResponse(payload("org.mvnsearch.user.AccountService.unknown")).block();
+        assertThat(meterRegistry.get(NpmRSocketRouteMetrics.ROUTE_TIMER).tag("route", "org.mvnsearch.user.AccountService.findById")
+                .tag("frame", FrameType.REQUEST_RESPONSE.name()).tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(NpmRSocketRouteMetrics.ELEMENTS_COUNTER).tag("route", "org.mvnsearch.user.AccountService.findAll")
+                .counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get(NpmRSocketRouteMetrics.IN_FLIGHT_GAUGE).tag("route", "org.mvnsearch.user.AccountService.findAll")
+                .gauge().value()).isEqualTo(0);
+        // meters are registered once and reused
+        int meterCount = meterRegistry.getMeters().size();
+        metered.requestResponse(payload("org.mvnsearch.user.AccountService.findById")).block();
+        metered.requestStream(payload("org.mvnsearch.user.AccountService.findAll")).blockLast();
+        assertThat(meterRegistry.getMeters()).hasSize(meterCount);
+        assertThat(meterRegistry.get(NpmRSocketRouteMetrics.ROUTE_TIMER).tag("route", "org.mvnsearch.user.AccountService.findById")
+                .tag("outcome", "success").timer().count()).isEqualTo(2);
+        // routes not exported are not measured
+        assertThat(meterRegistry.find(NpmRSocketRouteMetrics.ROUTE_TIMER).tag("route", "org.mvnsearch.user.AccountService.unknown").timer()).isNull();
+        context.close();
+    }
+
+    private static Payload payload(String route) {
+        CompositeByteBuf metadata = ByteBufAllocator.DEFAULT.compositeBuffer();
+        CompositeMetadataFlyweight.encodeAndAddMetadata(metadata, ByteBufAllocator.DEFAULT, WellKnownMimeType.MESSAGE_RSOCKET_ROUTING,
+                TaggingMetadataFlyweight.createRoutingMetadata(ByteBufAllocator.DEFAULT, Collections.singletonList(route)).getContent());
+        return DefaultPayload.create(ByteBufAllocator.DEFAULT.buffer().writeBytes("{}".getBytes()), metadata);
+    }
+}
@@ -0,0 +1,33 @@
+package org.mvnsearch.boot.npm.export.rsocket;
+
+import org.junit.jupiter.api.Test;
+import org.mvnsearch.boot.npm.export.demo.AccountServiceImpl;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * RSocketExportedServiceRegistry test
+ *
+ * @author linux_china
+ */
+public class RSocketExportedServiceRegistryTest {
+
+    @Test
+    public void testFindService() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(AccountServiceImpl.class, bd -> bd.setLazyInit(true));
+        context.registerBean(RSocketExportedServiceRegistry.class);
+        context.refresh();
+        RSocketExportedServiceRegistry registry = context.getBean(RSocketExportedServiceRegistry.class);
+        RSocketExportedService service = registry.findService("AccountService");
+        assertThat(service).isNotNull();
+        assertThat(service.getServiceName()).isEqualTo("org.mvnsearch.user.AccountService");
+        assertThat(service.getServiceClass()).isEqualTo(AccountServiceImpl.class);
+        assertThat(service.getStubMethods()).hasSize(3);
+        assertThat(registry.findService("UserService")).isNull();
+        // lazy service bean should not be instantiated by registry
+        assertThat(context.getBeanFactory().containsSingleton(service.getBeanName())).isFalse();
+        context.close();
+    }
+}
@@ -0,0 +1,34 @@
+package org.mvnsearch.boot.npm.export.rsocket.generator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * JavaScriptMinifier test
+ *
+ * @author linux_china
+ */
+public class JavaScriptMinifierTest {
+
+    @Test
+    public void testMinify() {
+        String jsCode = "// header\n" +
+                "/**\n" +
+                " * @param {number} id\n" +
+                " */\n" +
+                "    findById(id) {\n" +
+                "\n" +
+                "        return this.call('ws://localhost/*x*/', \"a // b\", `c /* d */`); // call\n" +
+                "    }\n";
+        assertThat(JavaScriptMinifier.minify(jsCode)).isEqualTo("findById(id) {\n" +
+                "return this.call('ws://localhost/*x*/', \"a // b\", `c /* d */`);\n" +
+                "}\n");
+    }
+
+    @Test
+    public void testKeepPureAnnotation() {
+        assertThat(JavaScriptMinifier.minify("export default /*#__PURE__*/ Object.assign(service, {findById}); /* x */\n"))
+                .isEqualTo("export default /*#__PURE__*/ Object.assign(service, {findById});\n");
+    }
+}
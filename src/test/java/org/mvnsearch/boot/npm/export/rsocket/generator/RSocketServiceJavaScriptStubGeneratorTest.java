@@ -2,8 +2,16 @@ package org.mvnsearch.boot.npm.export.rsocket.generator;
 
 import org.apache.commons.compress.utils.IOUtils;
 import org.junit.jupiter.api.Test;
+import org.mvnsearch.boot.npm.export.analytics.AnalyticsService;
+import org.mvnsearch.boot.npm.export.demo.Account;
 import org.mvnsearch.boot.npm.export.demo.AccountService;
 import org.mvnsearch.boot.npm.export.demo.AccountServiceImpl;
+import org.mvnsearch.boot.npm.export.rsocket.NpmDataCodec;
+import org.mvnsearch.boot.npm.export.rsocket.NpmResponseCache;
+import org.mvnsearch.boot.npm.export.rsocket.NpmStreamWindow;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
@@ -11,6 +19,8 @@ import java.io.FileOutputStream;
 import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 /**
  * RSocketServiceJavaScriptStubGenerator test
  *
@@ -46,4 +56,120 @@ public class RSocketServiceJavaScriptStubGeneratorTest {
         JsRSocketStubMethod jsMethod = generator.generateMethodStub(method);
         System.out.println(generator.toJsCode(jsMethod, "  "));
     }
+
+    @Test
+    public void testGenerateCborJsModule() {
+        String jsCode = generator.generate("org.mvnsearch.user.AccountService", NpmDataCodec.CBOR);
+        assertThat(jsCode).contains("require('cbor')", "const dataMimeType = 'application/cbor';");
+    }
+
+    @Test
+    public void testGenerateResponseCache() {
+        RSocketServiceJavaScriptStubGenerator cachedGenerator = new RSocketServiceJavaScriptStubGenerator(CachedAccountService.class);
+        String jsCode = cachedGenerator.generate("org.mvnsearch.user.CachedAccountService");
+        assertThat(jsCode).contains("findById: new ResponseCache(30000, 100)",
+                "return responseCaches.findById.get(JSON.stringify([id]), () => this.rsocketRequestResponse('findById',id));",
+                "clearResponseCache(methodName) {");
+        // results loaded before clear() are not cached
+        assertThat(jsCode).contains("const generation = this.generation;",
+                "if (generation !== this.generation) {",
+                "this.generation++;\n        this.entries.clear();\n        this.inflight.clear();");
+        assertThat(jsCode).doesNotContain("responseCaches.findByNick");
+        assertThat(generator.generate("org.mvnsearch.user.AccountService")).doesNotContain("ResponseCache");
+    }
+
+    @Test
+    public void testGenerateFireAndForgetBatch() {
+        RSocketServiceJavaScriptStubGenerator batchGenerator = new RSocketServiceJavaScriptStubGenerator(AnalyticsService.class);
+        String jsCode = batchGenerator.generate("org.mvnsearch.analytics.AnalyticsService");
+        assertThat(jsCode).contains("const batchRouteMetadata = requestMetadata('npm.export.batch');",
+                "track: {items: [], timer: null, maxSize: 10, maxDelay: 1000}",
+                "return this.batchFireAndForget('track',account);",
+                "return this.rsocketFireAndForget('delete',account);");
+    }
+
+    @Test
+    public void testGenerateEsmFunctionExports() {
+        RSocketServiceJavaScriptStubGenerator batchGenerator = new RSocketServiceJavaScriptStubGenerator(AnalyticsService.class);
+        String jsCode = batchGenerator.generateService("org.mvnsearch.analytics.AnalyticsService", ModuleFormat.ESM, null);
+        assertThat(jsCode).contains("const service = new AnalyticsService();",
+                "export function setPromiseRSocket(promiseRSocket) {",
+                "export function flushBatches() {",
+                "export function track(account) {\n  return service.batchFireAndForget('track',account);",
+                "export default /*#__PURE__*/ Object.assign(service, {track});");
+        // reserved word is kept as method of default instance
+        assertThat(jsCode).contains("    delete(account) {").doesNotContain("export function delete");
+        assertThat(batchGenerator.generateService("org.mvnsearch.analytics.AnalyticsService", ModuleFormat.COMMONJS, null))
+                .doesNotContain("export function").contains("module.exports = new AnalyticsService();");
+    }
+
+    @Test
+    public void testGenerateStreamWindow() {
+        RSocketServiceJavaScriptStubGenerator streamGenerator = new RSocketServiceJavaScriptStubGenerator(StreamAccountService.class);
+        String jsCode = streamGenerator.generate("org.mvnsearch.user.StreamAccountService");
+        // @NpmStreamWindow size and low-water mark, and window from caller wins
+        assertThat(jsCode).contains("return this.rsocketRequestStream('findAll', null, streamWindow || {size: 64, lowWaterMark: 8});",
+                "return this.rsocketRequestChannel('watch', nicks, streamWindow || {size: 16});",
+                "return this.rsocketRequestStream('findByType', type, streamWindow);");
+        // request size first, then replenish demand with request(n) when outstanding elements drop to low-water mark
+        assertThat(jsCode).contains("const lowWaterMark = streamWindow.lowWaterMark == null || streamWindow.lowWaterMark < 0 ? (size >> 2) : Math.min(streamWindow.lowWaterMark, size - 1);",
+                "outstanding = size;\n                sub.request(size);",
+                "outstanding--;\n            if (outstanding <= lowWaterMark && holder.subscription) {\n                const n = size - outstanding;\n                outstanding = size;\n                holder.subscription.request(n);",
+                "}).subscribe(windowedSubscriber(subscriber, streamWindow || this.streamWindow, holder));");
+        // unsubscribe cancels rsocket subscription, and subscription arrived after unsubscribe is cancelled at once
+        assertThat(jsCode).contains("return () => cancelSubscription(holder);",
+                "holder.cancelled = true;\n    if (holder.subscription) {\n        holder.subscription.cancel();\n        holder.subscription = null;",
+                "if (holder.cancelled) {\n                sub.cancel();");
+    }
+
+    @Test
+    public void testGenerateRouteMetadataCache() {
+        RSocketServiceJavaScriptStubGenerator streamGenerator = new RSocketServiceJavaScriptStubGenerator(StreamAccountService.class);
+        String jsCode = streamGenerator.generate("org.mvnsearch.user.StreamAccountService");
+        // routing metadata is encoded once per method, frozen, and reused by every call
+        assertThat(jsCode).contains("const routeMetadataCache = Object.freeze({\n",
+                "    findAll: requestMetadata('org.mvnsearch.user.StreamAccountService.findAll')",
+                "    watch: requestMetadata('org.mvnsearch.user.StreamAccountService.watch')",
+                "    findByType: requestMetadata('org.mvnsearch.user.StreamAccountService.findByType')",
+                "return routeMetadataCache[methodName] || requestMetadata(this.serviceName + \".\" + methodName);",
+                "metadata: this.routeMetadata(methodName)\n                }).subscribe(windowedSubscriber(");
+        // only the first frame of channel carries routing metadata
+        assertThat(jsCode).contains("let firstFrame = true;",
+                "const metadata = firstFrame ? this.routeMetadata(methodName) : null;\n                    firstFrame = false;",
+                "data: encodeData(data),\n                        metadata: metadata\n");
+    }
+
+    @MessageMapping("org.mvnsearch.user.StreamAccountService")
+    public static class StreamAccountService {
+        @MessageMapping("findAll")
+        @NpmStreamWindow(value = 64, lowWaterMark = 8)
+        public Flux<Account> findAll() {
+            return Flux.empty();
+        }
+
+        @MessageMapping("watch")
+        @NpmStreamWindow(16)
+        public Flux<Account> watch(Flux<String> nicks) {
+            return Flux.empty();
+        }
+
+        @MessageMapping("findByType")
+        public Flux<Account> findByType(String type) {
+            return Flux.empty();
+        }
+    }
+
+    @MessageMapping("org.mvnsearch.user.CachedAccountService")
+    public static class CachedAccountService {
+        @MessageMapping("findById")
+        @NpmResponseCache(ttl = 30000, maxSize = 100)
+        public Mono<Account> findById(Integer id) {
+            return Mono.empty();
+        }
+
+        @MessageMapping("findByNick")
+        public Mono<Account> findByNick(String nick) {
+            return Mono.empty();
+        }
+    }
 }
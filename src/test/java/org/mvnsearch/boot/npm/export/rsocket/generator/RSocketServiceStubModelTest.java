@@ -0,0 +1,75 @@
+package org.mvnsearch.boot.npm.export.rsocket.generator;
+
+import io.rsocket.frame.FrameType;
+import org.junit.jupiter.api.Test;
+import org.mvnsearch.boot.npm.export.demo.Account;
+import org.mvnsearch.boot.npm.export.demo.AccountServiceImpl;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * RSocketServiceStubModel test
+ *
+ * @author linux_china
+ */
+public class RSocketServiceStubModelTest {
+
+    @Test
+    public void testStubModel() {
+        RSocketServiceStubModel stubModel = RSocketServiceStubModel.of(AccountServiceImpl.class);
+        assertThat(RSocketServiceStubModel.of(AccountServiceImpl.class)).isSameAs(stubModel);
+        assertThat(stubModel.getJsClassName()).isEqualTo("AccountService");
+        assertThat(stubModel.getStubMethods())
+                .filteredOn(stubMethod -> stubMethod.getName().equals("findAll"))
+                .extracting(JsRSocketStubMethod::getFrameType)
+                .containsExactly(FrameType.REQUEST_STREAM);
+        assertThat(stubModel.getTypeDefs()).containsOnlyKeys(Account.class);
+    }
+
+    @Test
+    public void testNestedTypeDefs() {
+        RSocketServiceStubModel stubModel = RSocketServiceStubModel.create(OrderService.class);
+        assertThat(stubModel.getTypeDefs()).containsOnlyKeys(Order.class, Customer.class, OrderLine.class);
+        assertThat(stubModel.getTypeDefProperties(Order.class))
+                .containsEntry("customer", stubModel.toJsType(Customer.class))
+                .containsEntry("lines", "Array<" + stubModel.toJsType(OrderLine.class) + ">")
+                .containsEntry("status", "string");
+        // cycle: Customer -> Order
+        assertThat(stubModel.getTypeDefProperties(Customer.class)).containsEntry("lastOrder", stubModel.toJsType(Order.class));
+        String typeScript = new TypeScriptDeclarationGenerator(stubModel).generate();
+        assertThat(typeScript).contains("declare class " + stubModel.toJsType(OrderLine.class));
+    }
+
+    @MessageMapping("org.mvnsearch.order.OrderService")
+    public static class OrderService {
+        @MessageMapping("findById")
+        public Mono<Order> findById(Integer id) {
+            return Mono.empty();
+        }
+    }
+
+    public enum OrderStatus {
+        OPEN, CLOSED
+    }
+
+    public static class Order {
+        private Integer id;
+        private Customer customer;
+        private List<OrderLine> lines;
+        private OrderStatus status;
+    }
+
+    public static class Customer {
+        private String name;
+        private Order lastOrder;
+    }
+
+    public static class OrderLine {
+        private String product;
+        private Integer quantity;
+    }
+}
@@ -5,7 +5,7 @@ const {encodeAndAddWellKnownMetadata, MESSAGE_RSOCKET_ROUTING} = require('rsocke
 const {ReactiveSocket} = require('rsocket-types')
 
 //const murmurhash3Seed = 104729;
-const maxRSocketRequestN = 2147483647;
+const defaultStreamWindow = {size: 256, lowWaterMark: 64};
 
 function requestMetadata(route) {
     return encodeAndAddWellKnownMetadata(
@@ -32,11 +32,108 @@ function toJsonBuffer(param) {
 }
 
 /**
- * @version 2020.04.02
+ * windowed subscriber for requestStream and requestChannel: request N elements first,
+ * then refill demand when outstanding elements drop to low-water mark
+ * @param {Object} subscriber rxjs subscriber
+ * @param {{size: number, lowWaterMark: number}} streamWindow
+ * @param {{subscription: Object, cancelled: boolean}} holder
+ * @return {Object}
+ */
+function windowedSubscriber(subscriber, streamWindow, holder) {
+    const size = Math.max(1, streamWindow.size);
+    const lowWaterMark = streamWindow.lowWaterMark == null || streamWindow.lowWaterMark < 0 ? (size >> 2) : Math.min(streamWindow.lowWaterMark, size - 1);
+    let outstanding = 0;
+    return {
+        onComplete: () => {
+            holder.subscription = null;
+            subscriber.complete();
+        },
+        onError: error => {
+            holder.subscription = null;
+            subscriber.error(error);
+        },
+        onNext: value => {
+            subscriber.next(decodeData(value.data));
+            outstanding--;
+            if (outstanding <= lowWaterMark && holder.subscription) {
+                const n = size - outstanding;
+                outstanding = size;
+                holder.subscription.request(n);
+            }
+        },
+        onSubscribe: sub => {
+            if (holder.cancelled) {
+                sub.cancel();
+            } else {
+                holder.subscription = sub;
+                outstanding = size;
+                sub.request(size);
+            }
+        }
+    };
+}
+
+/**
+ * cancel rsocket subscription when rxjs subscriber unsubscribed
+ * @param {{subscription: Object, cancelled: boolean}} holder
+ */
+function cancelSubscription(holder) {
+    holder.cancelled = true;
+    if (holder.subscription) {
+        holder.subscription.cancel();
+        holder.subscription = null;
+    }
+}
+
+const dataMimeType = 'application/json';
+
+/**
+ * encode param as JSON
+ * @param {Object|number|string|null} param
+ * @return {Buffer|null}
+ */
+function encodeData(param) {
+    return toJsonBuffer(param);
+}
+
+/**
+ * decode JSON data
+ * @param {Buffer} data
+ * @return {Object}
+ */
+function decodeData(data) {
+    return JSON.parse(data.toString());
+}
+
+/**
+ * pre-encoded routing metadata for every method
+ * @type {Object<string, Buffer>}
+ */
+const routeMetadataCache = Object.freeze({
+    findAll: requestMetadata('org.mvnsearch.user.AccountService.findAll'),
+    findById: requestMetadata('org.mvnsearch.user.AccountService.findById'),
+    findByNick: requestMetadata('org.mvnsearch.user.AccountService.findByNick')
+});
+
+/**
+ * @version 0.0.0
  */
 class AccountService {
     constructor() {
         this.serviceName = 'org.mvnsearch.user.AccountService';
+        this.streamWindow = defaultStreamWindow;
+        // RSocket data MIME type for setup frame
+        this.dataMimeType = dataMimeType;
+    }
+
+    /**
+     * routing metadata for method
+     * @param {string} methodName
+     * @return {Buffer}
+     * @private
+     */
+    routeMetadata(methodName) {
+        return routeMetadataCache[methodName] || requestMetadata(this.serviceName + "." + methodName);
     }
 
     /**
@@ -47,13 +144,13 @@ class AccountService {
      * @private
      */
     rsocketRequestResponse(methodName, param) {
-        return this.promiseRSocket.then(rsocket => {
+        return this.acquireRSocket().then(rsocket => {
             return new Promise((resolve, reject) => {
                 rsocket.requestResponse({
-                    data: toJsonBuffer(param),
-                    metadata: requestMetadata(this.serviceName + "." + methodName)
+                    data: encodeData(param),
+                    metadata: this.routeMetadata(methodName)
                 }).subscribe({
-                    onComplete: (value) => resolve(JSON.parse(value.data.toString())),
+                    onComplete: (value) => resolve(decodeData(value.data)),
                     onError: error => reject(error)
                 });
             });
@@ -68,11 +165,11 @@ class AccountService {
      * @private
      */
     rsocketFireAndForget(methodName, param) {
-        return this.promiseRSocket.then(rsocket => {
+        return this.acquireRSocket().then(rsocket => {
             return new Promise((resolve, reject) => {
                 rsocket.fireAndForget({
-                    data: toJsonBuffer(param),
-                    metadata: requestMetadata(this.serviceName + "." + methodName)
+                    data: encodeData(param),
+                    metadata: this.routeMetadata(methodName)
                 }).subscribe({
                     onComplete: (value) => {
                         resolve(true)
@@ -87,22 +184,20 @@ class AccountService {
      * rsocket requestStream
      * @param {string} methodName
      * @param {Object|number|null} [param]
+     * @param {{size: number, lowWaterMark: number}} [streamWindow] demand window
      * @return {Observable<Object>}
      * @private
      */
-    rsocketRequestStream(methodName, param) {
+    rsocketRequestStream(methodName, param, streamWindow) {
         return new Observable(subscriber => {
-            this.promiseRSocket.then(rsocket => {
+            const holder = {subscription: null, cancelled: false};
+            this.acquireRSocket().then(rsocket => {
                 rsocket.requestStream({
-                    data: toJsonBuffer(param),
-                    metadata: requestMetadata(this.serviceName + "." + methodName)
-                }).subscribe({
-                    onComplete: () => subscriber.complete(),
-                    onError: error => subscriber.error(error),
-                    onNext: value => subscriber.next(JSON.parse(value.data.toString())),
-                    onSubscribe: sub => sub.request(maxRSocketRequestN)
-                });
+                    data: encodeData(param),
+                    metadata: this.routeMetadata(methodName)
+                }).subscribe(windowedSubscriber(subscriber, streamWindow || this.streamWindow, holder));
             });
+            return () => cancelSubscription(holder);
         })
     }
 
@@ -110,10 +205,11 @@ class AccountService {
      * rsocket requestChannel
      * @param {string} methodName
      * @param {Array|Observable|Flowable} [param]
+     * @param {{size: number, lowWaterMark: number}} [streamWindow] demand window
      * @return {Observable<Object>}
      * @private
      */
-    rsocketRequestChannel(methodName, param) {
+    rsocketRequestChannel(methodName, param, streamWindow) {
         let fluxData = null;
         if (Array.isArray(param)) {
             fluxData = Flowable.just(param);
@@ -135,19 +231,20 @@ class AccountService {
             fluxData = param;
         }
         return new Observable(subscriber => {
-            this.promiseRSocket.then(rsocket => {
+            const holder = {subscription: null, cancelled: false};
+            // route metadata is only required by the first frame of channel
+            let firstFrame = true;
+            this.acquireRSocket().then(rsocket => {
                 rsocket.requestChannel(fluxData.map(data => {
+                    const metadata = firstFrame ? this.routeMetadata(methodName) : null;
+                    firstFrame = false;
                     return {
-                        data: toJsonBuffer(data),
-                        metadata: requestMetadata(this.serviceName + "." + methodName)
+                        data: encodeData(data),
+                        metadata: metadata
                     }
-                })).subscribe({
-                    onComplete: () => subscriber.complete(),
-                    onError: error => subscriber.error(error),
-                    onNext: value => subscriber.next(JSON.parse(value.data.toString())),
-                    onSubscribe: sub => sub.request(maxRSocketRequestN)
-                });
+                })).subscribe(windowedSubscriber(subscriber, streamWindow || this.streamWindow, holder));
             });
+            return () => cancelSubscription(holder);
         })
     }
 
@@ -160,6 +257,45 @@ class AccountService {
         this.promiseRSocket = promiseRSocket;
         return this;
     }
+
+    /**
+     * set RSocket pool, such as RSocketConnectionPool from connection.js, and every request acquires RSocket from pool
+     * @param {{acquire: function(): Promise<ReactiveSocket>}} rsocketPool
+     * @returns {AccountService}
+     */
+    setRSocketPool(rsocketPool) {
+        this.rsocketPool = rsocketPool;
+        return this;
+    }
+
+    /**
+     * acquire RSocket from pool, or the Promise RSocket
+     * @return {Promise<ReactiveSocket>}
+     * @private
+     */
+    acquireRSocket() {
+        return this.rsocketPool ? this.rsocketPool.acquire() : this.promiseRSocket;
+    }
+
+    /**
+     * set default demand window for requestStream and requestChannel
+     * @param {number} size request N for every window
+     * @param {number} [lowWaterMark] refill demand when outstanding elements drop to this mark, default is size / 4
+     * @returns {AccountService}
+     */
+    setStreamWindow(size, lowWaterMark) {
+        this.streamWindow = {size, lowWaterMark};
+        return this;
+    }
+    /**
+    *
+    * @param {{size: number, lowWaterMark: number}} [streamWindow] demand window
+    * @return {Observable<org_mvnsearch_boot_npm_export_demo_Account>}
+    */
+    findAll(streamWindow) {
+      return this.rsocketRequestStream('findAll', null, streamWindow);
+    }
+
     /**
     *
     * @param {number} id
@@ -178,14 +314,6 @@ class AccountService {
       return this.rsocketRequestResponse('findByNick',nick);
     }
 
-    /**
-    *
-    * @return {Observable<org_mvnsearch_boot_npm_export_demo_Account>}
-    */
-    findAll() {
-      return this.rsocketRequestStream('findAll');
-    }
-
 }
 
 module.exports = new AccountService();